@@ -0,0 +1,27 @@
+package com.reconnect.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the usual JMH command line, but always writes the results as JSON
+ * so runs on different commits can be compared, for example with a JMH visualizer or a diff of
+ * the {@code primaryMetric.score} fields.
+ *
+ * <p>The result file defaults to {@code target/jmh-result.json} and can be set with
+ * {@code -Djmh.result=<file>}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        String resultFile = System.getProperty("jmh.result", "target/jmh-result.json");
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build())
+                .run();
+    }
+}
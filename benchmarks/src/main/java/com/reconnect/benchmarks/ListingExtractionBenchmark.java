@@ -0,0 +1,85 @@
+package com.reconnect.benchmarks;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import com.reconnect.model.ListingRow;
+import com.reconnect.service.ListingExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing row extraction on the saved {@code fixtures/dropi-listing-page.html} page, loaded once
+ * in a local headless Chromium: one {@code evaluate} round-trip against one round-trip per
+ * element handle. Needs the Playwright Chromium build to be installed.
+ *
+ * <p>Playwright objects are bound to the thread that created them, so the state is per thread and
+ * the benchmark must run single-threaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ListingExtractionBenchmark {
+    private static final String FIXTURE = "/fixtures/dropi-listing-page.html";
+
+    private Playwright playwright;
+    private Page page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Logging.quiet();
+        String html;
+        try (InputStream in = ListingExtractionBenchmark.class.getResourceAsStream(FIXTURE)) {
+            if (in == null) {
+                throw new IOException("Fixture not found on the classpath: " + FIXTURE);
+            }
+            html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        playwright = Playwright.create();
+        Browser browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+        page = browser.newPage();
+        page.setContent(html);
+
+        List<ListingRow> expected = ListingExtractor.extractRowsWithHandles(page);
+        List<ListingRow> actual = ListingExtractor.extractRows(page);
+        if (!expected.toString().equals(actual.toString())) {
+            throw new IllegalStateException("Extraction results differ: " + expected + " vs " + actual);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        playwright.close();
+    }
+
+    @Benchmark
+    public List<ListingRow> singleEvaluate() {
+        return ListingExtractor.extractRows(page);
+    }
+
+    @Benchmark
+    public List<ListingRow> elementHandles() {
+        return ListingExtractor.extractRowsWithHandles(page);
+    }
+}
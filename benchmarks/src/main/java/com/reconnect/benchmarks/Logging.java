@@ -0,0 +1,19 @@
+package com.reconnect.benchmarks;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+
+/**
+ * The application logs lookups, retries and page steps at INFO and DEBUG; even with async
+ * loggers, left on, the benchmarks would partly measure logging and the ring buffer.
+ */
+public final class Logging {
+
+    private Logging() {
+    }
+
+    public static void quiet() {
+        Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, Level.WARN);
+    }
+}
@@ -0,0 +1,142 @@
+package com.reconnect.benchmarks;
+
+import com.reconnect.model.ProductResponse;
+import com.reconnect.service.PriceApiClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ServerSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the price client against an in-process {@link MockWebServer} answering
+ * immediately, so the client's own cost (request building, HTTP/1.1 over loopback,
+ * deserialization, logging) is what gets measured. No cache is configured.
+ *
+ * <p>The server's sockets use {@code TCP_NODELAY}: MockWebServer writes the response headers and
+ * body separately, and with Nagle's algorithm every request would otherwise wait ~40 ms for a
+ * delayed ACK, which hides the client entirely.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceApiClientBenchmark {
+    private static final String ALIEXPRESS_LINK = "https://pt.aliexpress.com/item/1005001234567890.html";
+    private static final int BATCH_SIZE = 20;
+
+    private MockWebServer server;
+    private PriceApiClient client;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Logging.quiet();
+        server = new MockWebServer();
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(ProductResponseDeserializationBenchmark.RESPONSE);
+            }
+        });
+        server.start();
+        client = new PriceApiClient(server.url("").toString().replaceAll("/$", ""));
+        batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add("SKU-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public ProductResponse findProduct() {
+        return client.findProduct("SKU-1", ALIEXPRESS_LINK);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ProductResponse findProductConcurrent() {
+        return client.findProduct("SKU-1", ALIEXPRESS_LINK);
+    }
+
+    @Benchmark
+    public Map<String, ProductResponse> findProductsBatch() {
+        return client.findProducts(batch, ALIEXPRESS_LINK);
+    }
+
+    /**
+     * Server sockets whose accepted connections have Nagle's algorithm turned off, so a response
+     * written as headers and body does not wait for the client's delayed ACK.
+     */
+    private static class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new NoDelayServerSocket();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            return bind(port, 50, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            return bind(port, backlog, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            return bind(port, backlog, address);
+        }
+
+        private static ServerSocket bind(int port, int backlog, InetAddress address) throws IOException {
+            ServerSocket socket = new NoDelayServerSocket();
+            socket.bind(new InetSocketAddress(address, port), backlog);
+            return socket;
+        }
+    }
+
+    private static class NoDelayServerSocket extends ServerSocket {
+        NoDelayServerSocket() throws IOException {
+        }
+
+        @Override
+        public Socket accept() throws IOException {
+            Socket socket = super.accept();
+            socket.setTcpNoDelay(true);
+            return socket;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.reconnect.benchmarks;
+
+import com.reconnect.model.PriceRule;
+import com.reconnect.service.PricingRuleEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tier selection of the price rules over a large set of prices, one lookup at a time and as a
+ * bulk evaluation of the whole array. The distribution shows whether the binary search over the
+ * tier bounds costs the same for cheap and expensive catalogs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceRuleBenchmark {
+    private static final int PRICES = 1 << 20;
+
+    /**
+     * {@code uniform}: R$ 0-700 spread evenly; {@code cheap}: most products under R$ 100, as in
+     * a typical dropshipping catalog; {@code expensive}: most products above R$ 500.
+     */
+    @Param({"uniform", "cheap", "expensive"})
+    public String distribution;
+
+    private double[] prices;
+    private PricingRuleEngine engine;
+
+    @Setup
+    public void setUp() {
+        Logging.quiet();
+        engine = PricingRuleEngine.load(null);
+        SplittableRandom random = new SplittableRandom(42);
+        prices = new double[PRICES];
+        for (int i = 0; i < PRICES; i++) {
+            prices[i] = switch (distribution) {
+                case "cheap" -> Math.min(700, -Math.log(1 - random.nextDouble()) * 60);
+                case "expensive" -> 700 - Math.min(700, -Math.log(1 - random.nextDouble()) * 120);
+                default -> random.nextDouble() * 700;
+            };
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRICES)
+    public void ruleFor(Blackhole blackhole) {
+        for (double price : prices) {
+            PriceRule rule = engine.ruleFor(price);
+            blackhole.consume(rule);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRICES)
+    public PriceRule[] evaluateCatalog() {
+        return engine.evaluate(prices);
+    }
+}
@@ -0,0 +1,70 @@
+package com.reconnect.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.reconnect.model.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of a price service response: a shared {@code ObjectMapper} resolving the type
+ * on every {@code readValue} call, against an {@code ObjectReader} built once, reading either the
+ * response string or the raw bytes as {@code PriceApiClient} does from the body stream. A mapper
+ * created per call is included as the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductResponseDeserializationBenchmark {
+    static final String RESPONSE = "{\"id\":\"SKU-1005001234567890\","
+            + "\"link\":\"https://pt.aliexpress.com/item/1005001234567890.html\","
+            + "\"price\":12990,\"skuId\":\"12000012345678901\","
+            + "\"createdAt\":\"2024-01-10T12:00:00Z\",\"updatedAt\":\"2024-02-01T08:30:00Z\","
+            + "\"uuid\":\"3f2b8c1e-6d4a-4b8f-9a51-2c7e0d9f1a3b\"}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ObjectReader reader;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() {
+        reader = mapper.readerFor(ProductResponse.class);
+        responseBytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ProductResponse sharedMapperReadValue() throws IOException {
+        return mapper.readValue(RESPONSE, ProductResponse.class);
+    }
+
+    @Benchmark
+    public ProductResponse reusedReaderString() throws IOException {
+        return reader.readValue(RESPONSE);
+    }
+
+    @Benchmark
+    public ProductResponse reusedReaderStream() throws IOException {
+        return reader.readValue(new ByteArrayInputStream(responseBytes));
+    }
+
+    @Benchmark
+    public ProductResponse newMapperPerCall() throws IOException {
+        return new ObjectMapper().readValue(RESPONSE, ProductResponse.class);
+    }
+}
@@ -29,7 +29,7 @@ if not exist "logs" mkdir logs
 
 REM Run the application
 echo Starting application...
-"%JAVA_EXE%" -Xmx1G -jar target\dropi-interactor-1.0-SNAPSHOT.jar
+"%JAVA_EXE%" -Xmx1G -jar target\dropi-interactor-1.0-SNAPSHOT.jar %*
 
 REM If there's an error, pause to show the message
 if !ERRORLEVEL! neq 0 (
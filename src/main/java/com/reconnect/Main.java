@@ -2,40 +2,108 @@ package com.reconnect;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import com.reconnect.config.AppConfig;
+import com.reconnect.daemon.ControlServer;
+import com.reconnect.daemon.UpdateDaemon;
+import com.reconnect.metrics.MetricsRegistry;
+import com.reconnect.metrics.MetricsServer;
+import com.reconnect.service.CheckpointJournal;
 import com.reconnect.service.PlaywrightService;
+import com.reconnect.service.PriceChangeFeed;
+import com.reconnect.shard.CoordinatorServer;
+import com.reconnect.shard.ShardStore;
+import com.reconnect.shard.ShardWorker;
 import com.reconnect.model.ProductLinks;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 
 public class Main {
     private static final Logger logger = LogManager.getLogger(Main.class);
     private static final int MAX_RETRIES = 3;
     private static final int RETRY_DELAY = 30000; // 30 seconds
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration COORDINATOR_CHECK_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration COORDINATOR_UNREACHABLE_TIMEOUT = Duration.ofMinutes(5);
     
     public static void main(String[] args) {
         logger.info("Starting application");
-        try (PlaywrightService playwrightService = new PlaywrightService()) {
-            Thread.sleep(10000);
+        MetricsServer metricsServer;
+        try {
+            metricsServer = startMetricsServer();
+        } catch (IOException e) {
+            logger.error("Could not start the metrics server", e);
+            System.exit(1);
+            return;
+        }
+
+        try {
+            List<String> arguments = Arrays.asList(args);
+            if (arguments.contains("--daemon")) {
+                runDaemon();
+            } else if (arguments.contains("--coordinator")) {
+                runCoordinator();
+            } else if (arguments.contains("--worker")) {
+                runShardWorker();
+            } else if (arguments.contains("--changes")) {
+                runChanges();
+            } else {
+                runBatch(arguments.contains("--resume"));
+            }
+        } finally {
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+        }
+    }
+
+    /**
+     * Crawls the listing and then updates every product, or crawls and updates at the same time
+     * when {@code PIPELINE_MODE} is enabled. With {@code resume} the checkpoint journal of an
+     * interrupted run is continued.
+     */
+    private static void runBatch(boolean resume) {
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(
+                AppConfig.getCheckpointFile(AppConfig.getUserDataDir()), resume, AppConfig.getCheckpointSyncEvery());
+             PlaywrightService playwrightService = new PlaywrightService()) {
+            playwrightService.setCheckpointJournal(checkpointJournal);
+
+            boolean crawlComplete = resume && checkpointJournal.isCrawlComplete();
+
+            if (AppConfig.isPipelineEnabled() && !crawlComplete) {
+                runPipeline(playwrightService);
+                return;
+            }
             
             List<ProductLinks> productLinks = null;
-            for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-                try {
-                    logger.info("Attempt {} of {}: Extracting product links", attempt, MAX_RETRIES);
-                    productLinks = playwrightService.extractProductLinks();
-                    logger.debug("Found {} products to process", productLinks.size());
-                    break;
-                } catch (Exception e) {
-                    logger.error("Failed to extract product links on attempt {}: {}", attempt, e.getMessage());
-                    if (attempt == MAX_RETRIES) {
-                        throw e;
+            if (crawlComplete) {
+                productLinks = checkpointJournal.getPendingLinks();
+                logger.info("Crawl already completed, resuming with {} of {} known product links not completed",
+                        productLinks.size(), checkpointJournal.getLinks().size());
+                if (productLinks.isEmpty()) {
+                    logger.info("Application completed successfully");
+                    return;
+                }
+            } else {
+                for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+                    try {
+                        logger.info("Attempt {} of {}: Extracting product links", attempt, MAX_RETRIES);
+                        productLinks = playwrightService.extractProductLinks();
+                        logger.debug("Found {} products to process", productLinks.size());
+                        break;
+                    } catch (Exception e) {
+                        logger.error("Failed to extract product links on attempt {}: {}", attempt, e.getMessage());
+                        if (attempt == MAX_RETRIES) {
+                            throw e;
+                        }
+                        logger.info("Waiting {} seconds before retry...", RETRY_DELAY / 1000);
+                        Thread.sleep(RETRY_DELAY);
                     }
-                    logger.info("Waiting {} seconds before retry...", RETRY_DELAY / 1000);
-                    Thread.sleep(RETRY_DELAY);
                 }
             }
             
             if (productLinks != null && !productLinks.isEmpty()) {
-                Thread.sleep(10000);
-                
                 for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
                     try {
                         logger.info("Attempt {} of {}: Processing product links", attempt, MAX_RETRIES);
@@ -63,4 +131,165 @@ public class Main {
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the scrape endpoint shared by every mode, or {@code null} when {@code METRICS_PORT}
+     *         is not set
+     */
+    private static MetricsServer startMetricsServer() throws IOException {
+        int port = AppConfig.getMetricsPort();
+        return port > 0 ? new MetricsServer(AppConfig.getMetricsHost(), port, MetricsRegistry.global()) : null;
+    }
+
+    /**
+     * Keeps the browsers and the price API client open and runs scheduled and requested update
+     * jobs until the process is stopped. No checkpoint journal is used: every job starts over.
+     */
+    private static void runDaemon() {
+        logger.info("Starting in daemon mode");
+        try (PlaywrightService playwrightService = new PlaywrightService()) {
+            playwrightService.keepWorkerBrowsersWarm();
+            UpdateDaemon daemon = new UpdateDaemon(playwrightService);
+            ControlServer controlServer = new ControlServer(AppConfig.getDaemonControlHost(),
+                    AppConfig.getDaemonControlPort(), daemon, playwrightService);
+            try {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    daemon.stop();
+                    try {
+                        if (!daemon.awaitStopped(SHUTDOWN_TIMEOUT)) {
+                            logger.warn("Running job did not finish within {} seconds", SHUTDOWN_TIMEOUT.toSeconds());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    // the JVM halts once the hook returns, possibly before main has closed the service
+                    playwrightService.persistState();
+                }, "daemon-shutdown"));
+                daemon.schedule(AppConfig.getDaemonIncrementalInterval(), AppConfig.getDaemonFullInterval());
+                PriceChangeFeed changeFeed = PriceChangeFeed.fromConfig(AppConfig.getUserDataDir());
+                if (changeFeed != null) {
+                    daemon.scheduleChanges(changeFeed, AppConfig.getDaemonChangesInterval());
+                }
+                daemon.run();
+            } finally {
+                controlServer.close();
+            }
+        } catch (Exception e) {
+            logger.error("Unexpected error", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Crawls the listing into leased shards and serves them to {@code --worker} processes until
+     * every shard is done. The browser is closed as soon as the crawl ends; an unfinished run is
+     * resumed from the shard state file.
+     */
+    private static void runCoordinator() {
+        logger.info("Starting as shard coordinator");
+        ShardStore store = ShardStore.open(AppConfig.getShardStateFile(AppConfig.getUserDataDir()),
+                AppConfig.getShardSize(), AppConfig.getShardLeaseDuration(), AppConfig.getShardMaxAttempts());
+        try {
+            CoordinatorServer coordinatorServer = new CoordinatorServer(AppConfig.getCoordinatorHost(),
+                    AppConfig.getCoordinatorPort(), store);
+            try {
+                if (!store.isCrawlComplete()) {
+                    crawlIntoShards(store);
+                }
+                store.awaitFinished(COORDINATOR_CHECK_INTERVAL);
+
+                int failedShards = store.count(ShardStore.FAILED);
+                if (failedShards > 0) {
+                    logger.warn("Completed with {} failed shards", failedShards);
+                } else {
+                    logger.info("Application completed successfully");
+                }
+            } finally {
+                coordinatorServer.close();
+            }
+        } catch (InterruptedException e) {
+            logger.error("Application interrupted", e);
+            System.exit(1);
+        } catch (Exception e) {
+            logger.error("Unexpected error", e);
+            System.exit(1);
+        }
+    }
+
+    private static void crawlIntoShards(ShardStore store) throws Exception {
+        try (PlaywrightService playwrightService = new PlaywrightService()) {
+            for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+                try {
+                    logger.info("Attempt {} of {}: Crawling product links into shards", attempt, MAX_RETRIES);
+                    playwrightService.extractProductLinks(store::add);
+                    break;
+                } catch (Exception e) {
+                    logger.error("Failed to extract product links on attempt {}: {}", attempt, e.getMessage());
+                    if (attempt == MAX_RETRIES) {
+                        throw e;
+                    }
+                    logger.info("Waiting {} seconds before retry...", RETRY_DELAY / 1000);
+                    Thread.sleep(RETRY_DELAY);
+                }
+            }
+        }
+        store.completeCrawl();
+    }
+
+    /**
+     * Updates the products of shards leased from the coordinator at {@code COORDINATOR_URL}.
+     * Every worker on the same host needs its own {@code USER_DATA_DIR}.
+     */
+    private static void runShardWorker() {
+        logger.info("Starting as shard worker");
+        try (PlaywrightService playwrightService = new PlaywrightService()) {
+            new ShardWorker(AppConfig.getCoordinatorUrl(), AppConfig.getWorkerId(),
+                    AppConfig.getShardLeaseDuration(), COORDINATOR_UNREACHABLE_TIMEOUT).run(playwrightService);
+        } catch (InterruptedException e) {
+            logger.error("Application interrupted", e);
+            System.exit(1);
+        } catch (Exception e) {
+            logger.error("Unexpected error", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Updates only the products whose prices changed since the last run, as read from
+     * {@code CHANGE_FEED_FILE} or {@code CHANGE_FEED_URL}. Products are matched through the
+     * product index, so a crawl must have processed them before.
+     */
+    private static void runChanges() {
+        logger.info("Applying price changes");
+        PriceChangeFeed changeFeed = PriceChangeFeed.fromConfig(AppConfig.getUserDataDir());
+        if (changeFeed == null) {
+            logger.error("--changes requires CHANGE_FEED_FILE or CHANGE_FEED_URL");
+            System.exit(1);
+        }
+        try (PlaywrightService playwrightService = new PlaywrightService()) {
+            int updated = playwrightService.applyPriceChanges(changeFeed);
+            logger.info("Application completed successfully, {} products updated", updated);
+        } catch (Exception e) {
+            logger.error("Unexpected error", e);
+            System.exit(1);
+        }
+    }
+
+    private static void runPipeline(PlaywrightService playwrightService) throws Exception {
+        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            try {
+                logger.info("Attempt {} of {}: Crawling and processing product links", attempt, MAX_RETRIES);
+                playwrightService.crawlAndProcessProducts();
+                logger.info("Application completed successfully");
+                return;
+            } catch (Exception e) {
+                logger.error("Failed to crawl and process product links on attempt {}: {}", attempt, e.getMessage());
+                if (attempt == MAX_RETRIES) {
+                    throw e;
+                }
+                logger.info("Waiting {} seconds before retry...", RETRY_DELAY / 1000);
+                Thread.sleep(RETRY_DELAY);
+            }
+        }
+    }
+}
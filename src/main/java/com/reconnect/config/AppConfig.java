@@ -1,10 +1,547 @@
 package com.reconnect.config;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 public class AppConfig {
     private static final String DEFAULT_API_URL = "http://localhost:8080";
+    private static final String DEFAULT_DROPI_URL = "https://app.dropi.com.br";
+    private static final int DEFAULT_WORKER_POOL_SIZE = 1;
+    private static final int DEFAULT_MAX_IN_FLIGHT_SAVES = 2;
+    private static final int DEFAULT_PIPELINE_QUEUE_CAPACITY = 50;
+    private static final int DEFAULT_PRICE_API_MAX_CONCURRENCY = 16;
+    private static final int DEFAULT_PRICE_CACHE_MAX_ENTRIES = 50000;
+    private static final int DEFAULT_PRICE_CACHE_MIN_TTL_MINUTES = 60;
+    private static final int DEFAULT_PRICE_CACHE_MAX_TTL_MINUTES = 24 * 60;
+    private static final int DEFAULT_CHECKPOINT_SYNC_EVERY = 50;
+    private static final int DEFAULT_FULL_CRAWL_INTERVAL_HOURS = 24 * 7;
+    private static final int DEFAULT_CRAWL_TABS = 1;
+    private static final int DEFAULT_DROPI_LATENCY_TARGET_MS = 10000;
+    private static final int DEFAULT_PRICE_API_LATENCY_TARGET_MS = 2000;
+    private static final int DEFAULT_PRICE_API_CONNECT_TIMEOUT_MS = 2000;
+    private static final int DEFAULT_PRICE_API_READ_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_PRICE_API_CALL_TIMEOUT_MS = 15000;
+    private static final int DEFAULT_DIRECT_SAVE_CONNECT_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_DIRECT_SAVE_TIMEOUT_MS = 60000;
+    private static final int DEFAULT_PRICE_API_RETRIES = 2;
+    private static final int DEFAULT_PRICE_API_HEDGE_MIN_DELAY_MS = 20;
+    private static final int DEFAULT_PRICE_API_BREAKER_FAILURES = 10;
+    private static final int DEFAULT_PRICE_API_BREAKER_OPEN_MS = 30000;
+    private static final int DEFAULT_RETRY_BACKOFF_BASE_MS = 2000;
+    private static final int DEFAULT_RETRY_BACKOFF_MAX_MS = 60000;
+    private static final int DEFAULT_CONTEXT_RECYCLE_AFTER = 200;
+    private static final int DEFAULT_CONTEXT_MAX_HEAP_MB = 512;
+    private static final String DEFAULT_METRICS_HOST = "127.0.0.1";
+    private static final int DEFAULT_DAEMON_CONTROL_PORT = 8091;
+    private static final int DEFAULT_COORDINATOR_PORT = 8092;
+    private static final int DEFAULT_SHARD_SIZE = 50;
+    private static final int DEFAULT_SHARD_LEASE_SECONDS = 300;
+    private static final int DEFAULT_SHARD_MAX_ATTEMPTS = 3;
+    private static final int DEFAULT_DAEMON_INCREMENTAL_INTERVAL_MINUTES = 60;
+    private static final int DEFAULT_DAEMON_FULL_INTERVAL_MINUTES = 24 * 60;
+    private static final int DEFAULT_DAEMON_CHANGES_INTERVAL_MINUTES = 5;
+    private static final String DEFAULT_BLOCKED_RESOURCE_TYPES = "image,media,font";
+    private static final String DEFAULT_BLOCKED_URL_PATTERNS = "google-analytics.com,googletagmanager.com,"
+            + "doubleclick.net,facebook.net,connect.facebook.com,hotjar.com,clarity.ms,tawk.to";
 
     public static String getApiUrl() {
         String apiUrl = System.getenv("API_URL");
         return apiUrl != null ? apiUrl : DEFAULT_API_URL;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Base URL of the Dropi app, without a trailing slash. Pointing it at a {@code DropiSimulator}
+     * allows running the automation locally.
+     */
+    public static String getDropiUrl() {
+        String dropiUrl = System.getenv("DROPI_URL");
+        return dropiUrl != null && !dropiUrl.isBlank() ? dropiUrl.trim().replaceAll("/+$", "") : DEFAULT_DROPI_URL;
+    }
+
+    /**
+     * Maximum number of concurrent requests sent to the price service.
+     */
+    public static int getPriceApiMaxConcurrency() {
+        return Math.max(1, getIntEnv("PRICE_API_MAX_CONCURRENCY", DEFAULT_PRICE_API_MAX_CONCURRENCY));
+    }
+
+    /**
+     * Price service response time above which the number of concurrent requests is lowered.
+     */
+    public static int getPriceApiLatencyTargetMs() {
+        return Math.max(0, getIntEnv("PRICE_API_LATENCY_TARGET_MS", DEFAULT_PRICE_API_LATENCY_TARGET_MS));
+    }
+
+    public static int getPriceApiConnectTimeoutMs() {
+        return Math.max(1, getIntEnv("PRICE_API_CONNECT_TIMEOUT_MS", DEFAULT_PRICE_API_CONNECT_TIMEOUT_MS));
+    }
+
+    /**
+     * Longest silence while reading a price service response.
+     */
+    public static int getPriceApiReadTimeoutMs() {
+        return Math.max(1, getIntEnv("PRICE_API_READ_TIMEOUT_MS", DEFAULT_PRICE_API_READ_TIMEOUT_MS));
+    }
+
+    /**
+     * Upper bound on a single price service request, from connecting to reading the whole body.
+     */
+    public static int getPriceApiCallTimeoutMs() {
+        return Math.max(1, getIntEnv("PRICE_API_CALL_TIMEOUT_MS", DEFAULT_PRICE_API_CALL_TIMEOUT_MS));
+    }
+
+    /**
+     * Number of times a price request failing with an I/O error, 429 or 5xx is repeated.
+     */
+    public static int getPriceApiRetries() {
+        return Math.max(0, getIntEnv("PRICE_API_RETRIES", DEFAULT_PRICE_API_RETRIES));
+    }
+
+    /**
+     * When enabled, a price request slower than the p95 of recent requests is sent a second time
+     * and the first answer is used.
+     */
+    public static boolean isPriceApiHedgingEnabled() {
+        return getBooleanEnv("PRICE_API_HEDGING", true);
+    }
+
+    /**
+     * Shortest wait before a price request is hedged, however fast recent requests were.
+     */
+    public static int getPriceApiHedgeMinDelayMs() {
+        return Math.max(0, getIntEnv("PRICE_API_HEDGE_MIN_DELAY_MS", DEFAULT_PRICE_API_HEDGE_MIN_DELAY_MS));
+    }
+
+    /**
+     * Consecutive failed price lookups after which lookups are skipped for a while.
+     */
+    public static int getPriceApiBreakerFailures() {
+        return Math.max(1, getIntEnv("PRICE_API_BREAKER_FAILURES", DEFAULT_PRICE_API_BREAKER_FAILURES));
+    }
+
+    /**
+     * How long price lookups are skipped once the circuit breaker opened.
+     */
+    public static int getPriceApiBreakerOpenMs() {
+        return Math.max(0, getIntEnv("PRICE_API_BREAKER_OPEN_MS", DEFAULT_PRICE_API_BREAKER_OPEN_MS));
+    }
+
+    /**
+     * Maximum number of Dropi page loads and direct saves running at the same time. Defaults to
+     * the number of pages that can load concurrently.
+     */
+    public static int getDropiMaxConcurrency() {
+        return Math.max(1, getIntEnv("DROPI_MAX_CONCURRENCY", Math.max(getWorkerPoolSize(), getCrawlTabs())));
+    }
+
+    /**
+     * Time to open a product and its prices tab above which fewer Dropi pages are loaded at once.
+     */
+    public static int getDropiLatencyTargetMs() {
+        return Math.max(0, getIntEnv("DROPI_LATENCY_TARGET_MS", DEFAULT_DROPI_LATENCY_TARGET_MS));
+    }
+
+    /**
+     * First back-off after an overload or a failed attempt; it doubles on every consecutive one.
+     */
+    public static int getRetryBackoffBaseMs() {
+        return Math.max(1, getIntEnv("RETRY_BACKOFF_BASE_MS", DEFAULT_RETRY_BACKOFF_BASE_MS));
+    }
+
+    public static int getRetryBackoffMaxMs() {
+        return Math.max(1, getIntEnv("RETRY_BACKOFF_MAX_MS", DEFAULT_RETRY_BACKOFF_MAX_MS));
+    }
+
+    /**
+     * Directory of the persistent Chromium profile that holds the authenticated Dropi session.
+     */
+    public static Path getUserDataDir() {
+        String dir = System.getenv("USER_DATA_DIR");
+        return Path.of(dir != null && !dir.isBlank() ? dir : "browser-data");
+    }
+
+    /**
+     * Location of the price cache snapshot. Defaults to {@code price-cache.json} next to the
+     * browser profile directory.
+     */
+    public static Path getPriceCacheFile(Path userDataDir) {
+        String file = System.getenv("PRICE_CACHE_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : userDataDir.resolveSibling("price-cache.json");
+    }
+
+    /**
+     * Whether price lookups are cached. With the cache on, a product can be saved with a price up
+     * to {@code PRICE_CACHE_MAX_TTL_MINUTES} old (24 hours by default) when the price service
+     * changed it in the meantime. Turned off by {@code PRICE_CACHE_ENABLED=false} or by a maximum
+     * TTL of 0, so every lookup asks the price service.
+     */
+    public static boolean isPriceCacheEnabled() {
+        return getBooleanEnv("PRICE_CACHE_ENABLED", true) && !getPriceCacheMaxTtl().isZero();
+    }
+
+    public static int getPriceCacheMaxEntries() {
+        return Math.max(1, getIntEnv("PRICE_CACHE_MAX_ENTRIES", DEFAULT_PRICE_CACHE_MAX_ENTRIES));
+    }
+
+    /**
+     * Shortest time a cached price is trusted, unless the maximum is lower.
+     */
+    public static Duration getPriceCacheMinTtl() {
+        return Duration.ofMinutes(Math.max(0, getIntEnv("PRICE_CACHE_MIN_TTL_MINUTES", DEFAULT_PRICE_CACHE_MIN_TTL_MINUTES)));
+    }
+
+    /**
+     * Longest time a cached price is trusted, however long the upstream price has been stable. This
+     * bounds how stale a saved price can be; 0 turns the cache off.
+     */
+    public static Duration getPriceCacheMaxTtl() {
+        return Duration.ofMinutes(Math.max(0, getIntEnv("PRICE_CACHE_MAX_TTL_MINUTES", DEFAULT_PRICE_CACHE_MAX_TTL_MINUTES)));
+    }
+
+    /**
+     * JSON file with the price tiers and overrides used to fill the Dropi calculator, or
+     * {@code null} to use the bundled {@code pricing-rules.json}.
+     */
+    public static Path getPricingRulesFile() {
+        String file = System.getenv("PRICING_RULES_FILE");
+        return file != null && !file.isBlank() ? Path.of(file.trim()) : null;
+    }
+
+    /**
+     * Location of the checkpoint journal used by {@code --resume}. Defaults to
+     * {@code checkpoint.journal} next to the browser profile directory.
+     */
+    public static Path getCheckpointFile(Path userDataDir) {
+        String file = System.getenv("CHECKPOINT_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : userDataDir.resolveSibling("checkpoint.journal");
+    }
+
+    /**
+     * Number of checkpoint records written between two syncs to disk.
+     */
+    public static int getCheckpointSyncEvery() {
+        return Math.max(1, getIntEnv("CHECKPOINT_SYNC_EVERY", DEFAULT_CHECKPOINT_SYNC_EVERY));
+    }
+
+    /**
+     * Location of the index of known Dropi products. Defaults to {@code product-index.json} next
+     * to the browser profile directory.
+     */
+    public static Path getProductIndexFile(Path userDataDir) {
+        String file = System.getenv("PRODUCT_INDEX_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : userDataDir.resolveSibling("product-index.json");
+    }
+
+    /**
+     * When enabled, the listing crawl stops at the first page without new or changed products and
+     * the rest of the catalog is taken from the product index.
+     */
+    public static boolean isIncrementalCrawlEnabled() {
+        return getBooleanEnv("INCREMENTAL_CRAWL", false);
+    }
+
+    /**
+     * How often an incremental crawl is replaced by a full crawl of every listing page.
+     */
+    public static Duration getFullCrawlInterval() {
+        return Duration.ofHours(Math.max(0, getIntEnv("FULL_CRAWL_INTERVAL_HOURS", DEFAULT_FULL_CRAWL_INTERVAL_HOURS)));
+    }
+
+    /**
+     * Number of tabs loading listing pages at the same time during the crawl.
+     */
+    public static int getCrawlTabs() {
+        return Math.max(1, getIntEnv("CRAWL_TABS", DEFAULT_CRAWL_TABS));
+    }
+
+    /**
+     * Number of browser pages processing products concurrently. A value of 1 keeps the
+     * original single-page behaviour.
+     */
+    public static int getWorkerPoolSize() {
+        return Math.max(1, getIntEnv("WORKER_POOL_SIZE", DEFAULT_WORKER_POOL_SIZE));
+    }
+
+    /**
+     * Number of products a worker's browser context processes before it is replaced by a fresh
+     * one. 0 keeps the context for the whole run.
+     */
+    public static int getContextRecycleAfter() {
+        return Math.max(0, getIntEnv("CONTEXT_RECYCLE_AFTER", DEFAULT_CONTEXT_RECYCLE_AFTER));
+    }
+
+    /**
+     * JavaScript heap size of a worker's page above which its browser context is replaced.
+     * 0 disables the check.
+     */
+    public static int getContextMaxHeapMb() {
+        return Math.max(0, getIntEnv("CONTEXT_MAX_HEAP_MB", DEFAULT_CONTEXT_MAX_HEAP_MB));
+    }
+
+    /**
+     * Upper bound on product saves submitted to Dropi at the same time, across all workers.
+     */
+    public static int getMaxInFlightSaves() {
+        return Math.max(1, getIntEnv("MAX_IN_FLIGHT_SAVES", DEFAULT_MAX_IN_FLIGHT_SAVES));
+    }
+
+    /**
+     * When enabled, product updates start while the listing is still being crawled instead of
+     * after the whole catalog has been extracted.
+     */
+    public static boolean isPipelineEnabled() {
+        return getBooleanEnv("PIPELINE_MODE", false);
+    }
+
+    /**
+     * Number of crawled links that may wait for a worker before the crawl is paused.
+     */
+    public static int getPipelineQueueCapacity() {
+        return Math.max(1, getIntEnv("PIPELINE_QUEUE_CAPACITY", DEFAULT_PIPELINE_QUEUE_CAPACITY));
+    }
+
+    /**
+     * Restores the original fixed sleeps between browser steps instead of waiting for the page
+     * to signal readiness. Mainly useful to measure how much time the condition waits save.
+     */
+    public static boolean useFixedWaits() {
+        return getBooleanEnv("FIXED_WAITS", false);
+    }
+
+    /**
+     * When enabled, variations whose current Dropi price already matches the price service are
+     * left alone, and products without any changed variation are not saved at all. A product
+     * whose pricing rules changed since its last save is recalculated in full.
+     */
+    public static boolean isSkipUnchangedEnabled() {
+        return getBooleanEnv("SKIP_UNCHANGED", false);
+    }
+
+    /**
+     * When enabled, requests matching the blocked resource types or URL patterns are aborted in
+     * every browser context.
+     */
+    public static boolean isResourceBlockingEnabled() {
+        return getBooleanEnv("RESOURCE_BLOCKING", false);
+    }
+
+    /**
+     * Playwright resource types to block, such as {@code image}, {@code font} or {@code stylesheet}.
+     */
+    public static Set<String> getBlockedResourceTypes() {
+        return new LinkedHashSet<>(getListEnv("BLOCKED_RESOURCE_TYPES", DEFAULT_BLOCKED_RESOURCE_TYPES));
+    }
+
+    /**
+     * URL fragments to block, typically analytics and third-party trackers.
+     */
+    public static List<String> getBlockedUrlPatterns() {
+        return getListEnv("BLOCKED_URL_PATTERNS", DEFAULT_BLOCKED_URL_PATTERNS);
+    }
+
+    /**
+     * URL fragments that are always loaded, even if a block rule matches them.
+     */
+    public static List<String> getAllowedUrlPatterns() {
+        return getListEnv("ALLOWED_URL_PATTERNS", "");
+    }
+
+    /**
+     * Port of the Prometheus scrape endpoint. The endpoint is disabled unless a port is set.
+     */
+    public static int getMetricsPort() {
+        return Math.max(0, getIntEnv("METRICS_PORT", 0));
+    }
+
+    public static String getMetricsHost() {
+        String host = System.getenv("METRICS_HOST");
+        return host != null && !host.isBlank() ? host.trim() : DEFAULT_METRICS_HOST;
+    }
+
+    /**
+     * Location of the metrics snapshot written at the end of a run. Defaults to
+     * {@code metrics.prom} next to the browser profile directory.
+     */
+    public static Path getMetricsFile(Path userDataDir) {
+        String file = System.getenv("METRICS_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : userDataDir.resolveSibling("metrics.prom");
+    }
+
+    /**
+     * Port of the control endpoint started by {@code --daemon}.
+     */
+    public static int getDaemonControlPort() {
+        return Math.max(0, getIntEnv("DAEMON_CONTROL_PORT", DEFAULT_DAEMON_CONTROL_PORT));
+    }
+
+    public static String getDaemonControlHost() {
+        String host = System.getenv("DAEMON_CONTROL_HOST");
+        return host != null && !host.isBlank() ? host.trim() : DEFAULT_METRICS_HOST;
+    }
+
+    /**
+     * How often the daemon queues an incremental crawl. 0 disables scheduled incremental crawls.
+     */
+    public static Duration getDaemonIncrementalInterval() {
+        return Duration.ofMinutes(Math.max(0, getIntEnv("DAEMON_INCREMENTAL_INTERVAL_MINUTES",
+                DEFAULT_DAEMON_INCREMENTAL_INTERVAL_MINUTES)));
+    }
+
+    /**
+     * How often the daemon queues a crawl of every listing page. 0 disables scheduled full crawls.
+     */
+    public static Duration getDaemonFullInterval() {
+        return Duration.ofMinutes(Math.max(0, getIntEnv("DAEMON_FULL_INTERVAL_MINUTES",
+                DEFAULT_DAEMON_FULL_INTERVAL_MINUTES)));
+    }
+
+    /**
+     * Port the {@code --coordinator} process serves shards on.
+     */
+    public static int getCoordinatorPort() {
+        return Math.max(0, getIntEnv("COORDINATOR_PORT", DEFAULT_COORDINATOR_PORT));
+    }
+
+    /**
+     * Address the coordinator binds to. Set it to {@code 0.0.0.0} for workers on other hosts.
+     */
+    public static String getCoordinatorHost() {
+        String host = System.getenv("COORDINATOR_HOST");
+        return host != null && !host.isBlank() ? host.trim() : DEFAULT_METRICS_HOST;
+    }
+
+    /**
+     * Base URL of the coordinator used by {@code --worker} processes.
+     */
+    public static String getCoordinatorUrl() {
+        String url = System.getenv("COORDINATOR_URL");
+        return url != null && !url.isBlank()
+                ? url.trim().replaceAll("/+$", "")
+                : "http://" + DEFAULT_METRICS_HOST + ":" + DEFAULT_COORDINATOR_PORT;
+    }
+
+    /**
+     * Name a worker reports to the coordinator. Defaults to the host name and process id.
+     */
+    public static String getWorkerId() {
+        String id = System.getenv("WORKER_ID");
+        if (id != null && !id.isBlank()) {
+            return id.trim();
+        }
+        String host = System.getenv("HOSTNAME");
+        return (host != null && !host.isBlank() ? host : "worker") + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Number of products in a shard leased to a worker.
+     */
+    public static int getShardSize() {
+        return Math.max(1, getIntEnv("SHARD_SIZE", DEFAULT_SHARD_SIZE));
+    }
+
+    /**
+     * Time after which the shard of a worker that stopped renewing its lease is handed to another one.
+     */
+    public static Duration getShardLeaseDuration() {
+        return Duration.ofSeconds(Math.max(10, getIntEnv("SHARD_LEASE_SECONDS", DEFAULT_SHARD_LEASE_SECONDS)));
+    }
+
+    /**
+     * Number of times a shard is leased before it is given up as failed.
+     */
+    public static int getShardMaxAttempts() {
+        return Math.max(1, getIntEnv("SHARD_MAX_ATTEMPTS", DEFAULT_SHARD_MAX_ATTEMPTS));
+    }
+
+    /**
+     * Location of the coordinator's shard state. Defaults to {@code shards.json} next to the
+     * browser profile directory.
+     */
+    public static Path getShardStateFile(Path userDataDir) {
+        String file = System.getenv("SHARD_STATE_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : userDataDir.resolveSibling("shards.json");
+    }
+
+    /**
+     * NDJSON file of price changes, one price API product per line, appended to by the price
+     * source. Takes precedence over {@code CHANGE_FEED_URL}.
+     */
+    public static Path getChangeFeedFile() {
+        String file = System.getenv("CHANGE_FEED_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : null;
+    }
+
+    /**
+     * Endpoint returning the price changes after a cursor, called with {@code ?since=<cursor>}.
+     */
+    public static String getChangeFeedUrl() {
+        String url = System.getenv("CHANGE_FEED_URL");
+        return url != null && !url.isBlank() ? url.trim() : null;
+    }
+
+    /**
+     * Location of the position up to which the change feed has been applied. Defaults to
+     * {@code change-feed.cursor} next to the browser profile directory.
+     */
+    public static Path getChangeFeedCursorFile(Path userDataDir) {
+        String file = System.getenv("CHANGE_FEED_CURSOR_FILE");
+        return file != null && !file.isBlank() ? Path.of(file) : userDataDir.resolveSibling("change-feed.cursor");
+    }
+
+    /**
+     * How often the daemon applies the change feed, when one is configured. 0 disables it.
+     */
+    public static Duration getDaemonChangesInterval() {
+        return Duration.ofMinutes(Math.max(0, getIntEnv("DAEMON_CHANGES_INTERVAL_MINUTES",
+                DEFAULT_DAEMON_CHANGES_INTERVAL_MINUTES)));
+    }
+
+    private static List<String> getListEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return Arrays.stream((value != null ? value : defaultValue).split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
+    }
+
+    /**
+     * When enabled, products are saved by posting the editor form over HTTP with the browser's
+     * session cookies, once the request format has been learned from a save through the UI.
+     */
+    public static boolean isDirectSaveEnabled() {
+        return getBooleanEnv("DIRECT_SAVE", false);
+    }
+
+    public static int getDirectSaveConnectTimeoutMs() {
+        return Math.max(1, getIntEnv("DIRECT_SAVE_CONNECT_TIMEOUT_MS", DEFAULT_DIRECT_SAVE_CONNECT_TIMEOUT_MS));
+    }
+
+    /**
+     * Upper bound on a direct save or its verification, from connecting to reading the whole
+     * response. Defaults to the 60 s a UI save may wait for its redirect.
+     */
+    public static int getDirectSaveTimeoutMs() {
+        return Math.max(1, getIntEnv("DIRECT_SAVE_TIMEOUT_MS", DEFAULT_DIRECT_SAVE_TIMEOUT_MS));
+    }
+
+    private static boolean getBooleanEnv(String name, boolean defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static int getIntEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.reconnect.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconnect.config.AppConfig;
+import com.reconnect.model.ProductLinks;
+import com.reconnect.service.PlaywrightService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Local control endpoint of the {@link UpdateDaemon}:
+ * <ul>
+ *     <li>{@code GET /status} returns the daemon state, its queue and the most recent jobs;</li>
+ *     <li>{@code POST /update?type=incremental} or {@code ?type=full} queues a crawl;</li>
+ *     <li>{@code POST /update?type=changes} queues an update of the products in the price change
+ *     feed, when one is configured;</li>
+ *     <li>{@code POST /update} with {@code {"products": [...]}} queues an update of the given
+ *     products. Each entry is a Dropi product id, an {@code editar/produto/} URL, or an object
+ *     with {@code dropiLink} and {@code aliExpressLink}. Ids and URLs are resolved through the
+ *     product index, so they must have been seen by an earlier crawl.</li>
+ * </ul>
+ */
+public class ControlServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ControlServer.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final UpdateDaemon daemon;
+    private final PlaywrightService service;
+
+    public ControlServer(String host, int port, UpdateDaemon daemon, PlaywrightService service) throws IOException {
+        this.daemon = daemon;
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.server.createContext("/status", this::handleStatus);
+        this.server.createContext("/update", this::handleUpdate);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.start();
+        logger.info("Serving daemon control on http://{}:{}", host, server.getAddress().getPort());
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            send(exchange, 200, daemon.status());
+        }
+    }
+
+    private void handleUpdate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("type=")) {
+                String type = query.substring("type=".length());
+                if (!type.equals("incremental") && !type.equals("full") && !type.equals("changes")) {
+                    send(exchange, 400, Map.of("error", "Unknown job type: " + type));
+                    return;
+                }
+                if (type.equals("changes") && !daemon.hasChangeFeed()) {
+                    send(exchange, 409, Map.of("error", "No price change feed configured"));
+                    return;
+                }
+                queued(exchange, daemon.submit(UpdateJob.Type.valueOf(type.toUpperCase()), List.of(), "control"),
+                        List.of());
+                return;
+            }
+
+            JsonNode request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = objectMapper.readTree(in);
+            } catch (IOException e) {
+                send(exchange, 400, Map.of("error", "Invalid JSON: " + e.getMessage()));
+                return;
+            }
+            JsonNode entries = request != null ? request.path("products") : null;
+            if (entries == null || !entries.isArray() || entries.isEmpty()) {
+                send(exchange, 400, Map.of("error", "Expected {\"products\": [...]} or ?type=incremental|full|changes"));
+                return;
+            }
+
+            List<ProductLinks> products = new ArrayList<>();
+            List<String> unknown = new ArrayList<>();
+            for (JsonNode entry : entries) {
+                ProductLinks link = resolve(entry);
+                if (link != null) {
+                    products.add(link);
+                } else {
+                    unknown.add(entry.isTextual() ? entry.asText() : entry.toString());
+                }
+            }
+            if (products.isEmpty()) {
+                send(exchange, 404, Map.of("error", "No known products", "unknown", unknown));
+                return;
+            }
+            queued(exchange, daemon.submit(UpdateJob.Type.PRODUCTS, products, "control"), unknown);
+        }
+    }
+
+    private ProductLinks resolve(JsonNode entry) {
+        if (entry.isObject()) {
+            String dropiLink = entry.path("dropiLink").asText(null);
+            String aliExpressLink = entry.path("aliExpressLink").asText(null);
+            if (dropiLink == null) {
+                return null;
+            }
+            return aliExpressLink != null
+                    ? new ProductLinks(dropiLink, aliExpressLink)
+                    : service.findKnownProduct(dropiLink);
+        }
+        String value = entry.asText("").trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        String dropiLink = value.contains("/") ? value : AppConfig.getDropiUrl() + "/editar/produto/" + value;
+        return service.findKnownProduct(dropiLink);
+    }
+
+    private static void queued(HttpExchange exchange, UpdateJob job, List<String> unknown) throws IOException {
+        if (job == null) {
+            send(exchange, 503, Map.of("error", "Daemon is stopping"));
+            return;
+        }
+        Map<String, Object> response = new LinkedHashMap<>(job.describe());
+        if (!unknown.isEmpty()) {
+            response.put("unknown", unknown);
+        }
+        send(exchange, 202, response);
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,253 @@
+package com.reconnect.daemon;
+
+import com.reconnect.metrics.MetricsRegistry;
+import com.reconnect.model.ProductLinks;
+import com.reconnect.service.PlaywrightService;
+import com.reconnect.service.PriceChangeFeed;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a {@link PlaywrightService} open and runs update jobs on it one after the other, so the
+ * Playwright driver, the authenticated browser context, the browsers of the worker pool (see
+ * {@link PlaywrightService#keepWorkerBrowsersWarm()}) and the price API connections stay warm
+ * between runs instead of being rebuilt by a new JVM every time.
+ *
+ * <p>Jobs come from an internal scheduler (incremental and full crawls and, when a
+ * {@link PriceChangeFeed} is configured, change-driven updates at fixed intervals) and from the
+ * {@link ControlServer}. Playwright objects are bound to the thread that created them, so
+ * {@link #run()} must be called on the thread that created the service; other threads only put
+ * jobs in the queue. Requested products are taken before queued crawls, but wait for a crawl that
+ * is already running. A crawl already waiting in the queue is not queued a second time.
+ */
+public class UpdateDaemon {
+    private static final Logger logger = LogManager.getLogger(UpdateDaemon.class);
+    private static final long POLL_INTERVAL_MS = 500;
+    private static final int RECENT_JOBS = 10;
+
+    private final PlaywrightService service;
+    private final PriorityBlockingQueue<UpdateJob> jobs = new PriorityBlockingQueue<>(16,
+            Comparator.comparing(UpdateJob::type).thenComparingLong(UpdateJob::id));
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("daemon-scheduler").factory());
+    private final AtomicLong jobIds = new AtomicLong();
+    private final Deque<Map<String, Object>> recentJobs = new ArrayDeque<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final MetricsRegistry metrics = MetricsRegistry.global();
+    private final Instant startedAt = Instant.now();
+    private ScheduledFuture<?> incrementalSchedule;
+    private ScheduledFuture<?> fullSchedule;
+    private ScheduledFuture<?> changesSchedule;
+    private volatile PriceChangeFeed changeFeed;
+    private volatile UpdateJob currentJob;
+    private volatile Instant currentJobStarted;
+    private volatile boolean stopping;
+
+    public UpdateDaemon(PlaywrightService service) {
+        this.service = service;
+    }
+
+    /**
+     * Starts the scheduler. The first incremental crawl is queued immediately, the first full
+     * crawl after one full interval. A zero interval disables that kind of scheduled job.
+     */
+    public void schedule(Duration incrementalInterval, Duration fullInterval) {
+        if (!incrementalInterval.isZero()) {
+            incrementalSchedule = scheduler.scheduleAtFixedRate(
+                    () -> submit(UpdateJob.Type.INCREMENTAL, List.of(), "schedule"),
+                    0, incrementalInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (!fullInterval.isZero()) {
+            fullSchedule = scheduler.scheduleAtFixedRate(
+                    () -> submit(UpdateJob.Type.FULL, List.of(), "schedule"),
+                    fullInterval.toMillis(), fullInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        logger.info("Scheduled incremental crawls every {} and full crawls every {}",
+                describe(incrementalInterval), describe(fullInterval));
+    }
+
+    /**
+     * Applies the price change feed at a fixed interval, starting immediately. Changes are applied
+     * before queued crawls. A zero interval only allows {@code CHANGES} jobs requested through the
+     * control endpoint.
+     */
+    public void scheduleChanges(PriceChangeFeed feed, Duration interval) {
+        changeFeed = feed;
+        if (!interval.isZero()) {
+            changesSchedule = scheduler.scheduleAtFixedRate(
+                    () -> submit(UpdateJob.Type.CHANGES, List.of(), "schedule"),
+                    0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        logger.info("Applying price changes {}", interval.isZero() ? "on request only" : "every " + describe(interval));
+    }
+
+    public boolean hasChangeFeed() {
+        return changeFeed != null;
+    }
+
+    /**
+     * Queues a job. Safe to call from any thread.
+     *
+     * @return the queued job, an equivalent crawl or change job that was already waiting, or {@code null} when
+     *         the daemon is stopping
+     */
+    public synchronized UpdateJob submit(UpdateJob.Type type, List<ProductLinks> products, String trigger) {
+        if (stopping) {
+            return null;
+        }
+        if (type != UpdateJob.Type.PRODUCTS) {
+            for (UpdateJob queued : jobs) {
+                // a queued full crawl also covers an incremental one
+                if (queued.type() == type
+                        || (type == UpdateJob.Type.INCREMENTAL && queued.type() == UpdateJob.Type.FULL)) {
+                    logger.debug("{} job already queued as job {}", type, queued.id());
+                    return queued;
+                }
+            }
+        }
+        UpdateJob job = new UpdateJob(jobIds.incrementAndGet(), type, List.copyOf(products), trigger, Instant.now());
+        jobs.add(job);
+        logger.info("Queued job {}: {} ({}, {} waiting)", job.id(), type, trigger, jobs.size());
+        return job;
+    }
+
+    /**
+     * Runs jobs until {@link #stop()} is called. Must be called on the thread that created the
+     * {@link PlaywrightService}.
+     */
+    public void run() {
+        logger.info("Daemon ready");
+        try {
+            while (!stopping) {
+                UpdateJob job = jobs.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    runJob(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scheduler.shutdownNow();
+            stopped.countDown();
+            logger.info("Daemon stopped with {} jobs left in the queue", jobs.size());
+        }
+    }
+
+    private void runJob(UpdateJob job) {
+        Instant started = Instant.now();
+        currentJobStarted = started;
+        currentJob = job;
+        String type = job.type().name().toLowerCase();
+        metrics.histogram("daemon_job_wait_seconds", "Time between queueing a daemon job and its start",
+                "type", type).observe(Duration.between(job.requestedAt(), started).toNanos() / 1e9);
+        logger.info("Starting job {}: {} ({})", job.id(), job.type(), job.trigger());
+
+        String result = "success";
+        String error = null;
+        try {
+            switch (job.type()) {
+                case PRODUCTS -> service.updateProducts(job.products());
+                case CHANGES -> service.applyPriceChanges(changeFeed);
+                case INCREMENTAL -> service.updateCatalog(true);
+                case FULL -> service.updateCatalog(false);
+            }
+        } catch (RuntimeException e) {
+            result = "error";
+            error = e.getMessage();
+            logger.error("Job {} failed: {}", job.id(), e.getMessage(), e);
+        } finally {
+            currentJob = null;
+        }
+
+        Instant finished = Instant.now();
+        Duration duration = Duration.between(started, finished);
+        metrics.histogram("daemon_job_duration_seconds", "Duration of daemon jobs", "type", type)
+                .observe(duration.toNanos() / 1e9);
+        metrics.counter("daemon_jobs_total", "Daemon jobs run, by type and result", "type", type, "result", result)
+                .increment();
+        logger.info("Finished job {} in {} ms: {}", job.id(), duration.toMillis(), result);
+
+        Map<String, Object> summary = job.describe();
+        summary.put("startedAt", started.toString());
+        summary.put("finishedAt", finished.toString());
+        summary.put("result", result);
+        if (error != null) {
+            summary.put("error", error);
+        }
+        synchronized (recentJobs) {
+            recentJobs.addFirst(summary);
+            if (recentJobs.size() > RECENT_JOBS) {
+                recentJobs.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Stops taking jobs. A running job is finished first; queued jobs are dropped.
+     */
+    public void stop() {
+        stopping = true;
+    }
+
+    /**
+     * Waits for {@link #run()} to return after {@link #stop()}.
+     *
+     * @return {@code false} if the running job did not finish in time
+     */
+    public boolean awaitStopped(Duration timeout) throws InterruptedException {
+        return stopped.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the state of the daemon, its queue and the most recent jobs, for {@code GET /status}
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        UpdateJob running = currentJob;
+        status.put("state", stopping ? "stopping" : running != null ? "running" : "idle");
+        status.put("startedAt", startedAt.toString());
+        if (running != null) {
+            Map<String, Object> current = running.describe();
+            current.put("startedAt", currentJobStarted.toString());
+            status.put("currentJob", current);
+        }
+        List<UpdateJob> queued = new ArrayList<>(jobs);
+        queued.sort(jobs.comparator());
+        status.put("queue", queued.stream().map(UpdateJob::describe).toList());
+        status.put("nextIncrementalCrawl", nextRun(incrementalSchedule));
+        status.put("nextFullCrawl", nextRun(fullSchedule));
+        status.put("nextChanges", nextRun(changesSchedule));
+        synchronized (recentJobs) {
+            status.put("recentJobs", new ArrayList<>(recentJobs));
+        }
+        return status;
+    }
+
+    private static String nextRun(ScheduledFuture<?> schedule) {
+        if (schedule == null || schedule.isCancelled()) {
+            return null;
+        }
+        return Instant.now().plusMillis(Math.max(0, schedule.getDelay(TimeUnit.MILLISECONDS))).toString();
+    }
+
+    private static String describe(Duration interval) {
+        return interval.isZero() ? "never" : interval.toMinutes() + " minutes";
+    }
+}
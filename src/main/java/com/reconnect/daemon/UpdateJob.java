@@ -0,0 +1,38 @@
+package com.reconnect.daemon;
+
+import com.reconnect.model.ProductLinks;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A unit of work for the {@link UpdateDaemon}: a crawl of the catalog or a list of products to
+ * update right away.
+ */
+public record UpdateJob(long id, Type type, List<ProductLinks> products, String trigger, Instant requestedAt) {
+
+    public enum Type {
+        /** Products requested through the control endpoint; run before any queued crawl. */
+        PRODUCTS,
+        /** Products whose prices changed according to the price change feed. */
+        CHANGES,
+        /** Crawl stopping at the first listing page of known products, unless a full crawl is due. */
+        INCREMENTAL,
+        /** Crawl of every listing page. */
+        FULL
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("id", id);
+        description.put("type", type.name().toLowerCase());
+        description.put("trigger", trigger);
+        description.put("requestedAt", requestedAt.toString());
+        if (type == Type.PRODUCTS) {
+            description.put("products", products.size());
+        }
+        return description;
+    }
+}
@@ -0,0 +1,32 @@
+package com.reconnect.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count, such as products processed or retries.
+ */
+public class Counter implements Metric {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    public void writeTo(StringBuilder out, String name, String labels) {
+        out.append(name).append(MetricsRegistry.braces(labels)).append(' ').append(get()).append('\n');
+    }
+
+    @Override
+    public String summarize() {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,97 @@
+package com.reconnect.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations in seconds over fixed buckets, exposed as a Prometheus histogram.
+ * Quantiles for the run summary are estimated by interpolating inside the bucket that holds them.
+ */
+public class Histogram implements Metric {
+    static final double[] DEFAULT_BUCKETS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120};
+
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] bounds) {
+        this.bounds = bounds;
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double seconds) {
+        int bucket = 0;
+        while (bucket < bounds.length && seconds > bounds[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sum.add(seconds);
+    }
+
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return the estimated value below which the fraction {@code q} of observations fall
+     */
+    public double quantile(double q) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        double rank = q * total;
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            long inBucket = buckets[i].sum();
+            if (inBucket > 0 && cumulative + inBucket >= rank) {
+                double lower = i == 0 ? 0 : bounds[i - 1];
+                if (i == bounds.length) {
+                    return lower;
+                }
+                return lower + (bounds[i] - lower) * (rank - cumulative) / inBucket;
+            }
+            cumulative += inBucket;
+        }
+        return bounds[bounds.length - 1];
+    }
+
+    @Override
+    public void writeTo(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i < bounds.length ? Double.toString(bounds[i]) : "+Inf";
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum").append(MetricsRegistry.braces(labels)).append(' ').append(getSum()).append('\n');
+        out.append(name).append("_count").append(MetricsRegistry.braces(labels)).append(' ').append(getCount()).append('\n');
+    }
+
+    @Override
+    public String summarize() {
+        long observations = getCount();
+        if (observations == 0) {
+            return "no observations";
+        }
+        return String.format("%d observations, avg %.0f ms, p50 %.0f ms, p95 %.0f ms, p99 %.0f ms",
+                observations, getSum() / observations * 1000, quantile(0.5) * 1000,
+                quantile(0.95) * 1000, quantile(0.99) * 1000);
+    }
+}
@@ -0,0 +1,87 @@
+package com.reconnect.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and changes log levels without a restart:
+ * <ul>
+ *     <li>{@code GET /loggers} lists the configured loggers and their levels;</li>
+ *     <li>{@code POST /loggers?name=com.reconnect.service&level=DEBUG} sets the level of a logger
+ *     and its descendants; without {@code name} the root logger is changed.</li>
+ * </ul>
+ * Changes last until the process exits or the configuration is reloaded.
+ */
+class LoggerLevelsHandler implements HttpHandler {
+    private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(LoggerLevelsHandler.class);
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> send(exchange, 200, listLevels());
+                case "POST" -> {
+                    Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                    String name = parameters.getOrDefault("name", LogManager.ROOT_LOGGER_NAME);
+                    Level level = Level.toLevel(parameters.get("level"), null);
+                    if (level == null) {
+                        send(exchange, 400, "Unknown level: " + parameters.get("level") + "\n");
+                        return;
+                    }
+                    Configurator.setAllLevels(name, level);
+                    logger.warn("Log level of {} set to {}", name.isEmpty() ? "root" : name, level);
+                    send(exchange, 200, listLevels());
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private static String listLevels() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        Map<String, Level> levels = new TreeMap<>();
+        for (LoggerConfig config : context.getConfiguration().getLoggers().values()) {
+            levels.put(config.getName().isEmpty() ? "root" : config.getName(), config.getLevel());
+        }
+        StringBuilder out = new StringBuilder();
+        levels.forEach((name, level) -> out.append(name).append(' ').append(level).append('\n'));
+        return out.toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
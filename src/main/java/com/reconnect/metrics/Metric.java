@@ -0,0 +1,19 @@
+package com.reconnect.metrics;
+
+/**
+ * One labelled series of a metric family.
+ */
+interface Metric {
+
+    /**
+     * Appends the series in the Prometheus text exposition format.
+     *
+     * @param labels the rendered labels without braces, possibly empty
+     */
+    void writeTo(StringBuilder out, String name, String labels);
+
+    /**
+     * @return a one-line human readable value for the end-of-run summary
+     */
+    String summarize();
+}
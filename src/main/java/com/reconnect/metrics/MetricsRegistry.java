@@ -0,0 +1,152 @@
+package com.reconnect.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of counters, gauges and histograms, rendered in the Prometheus text
+ * exposition format by {@link #scrape()} and as a readable summary by {@link #logSummary()}.
+ *
+ * <p>Metrics are identified by name and label values; asking twice for the same combination
+ * returns the same instance, so callers may either keep a reference or look it up on every use.
+ * Labels are given as alternating names and values: {@code counter("x_total", "help", "outcome", "UPDATED")}.
+ */
+public class MetricsRegistry {
+    private static final Logger logger = LogManager.getLogger(MetricsRegistry.class);
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, "counter").series(labels, Counter::new, Counter.class);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return family(name, help, "histogram").series(labels, () -> new Histogram(Histogram.DEFAULT_BUCKETS),
+                Histogram.class);
+    }
+
+    /**
+     * Registers a gauge read from {@code value} on every scrape. Registering the same series again
+     * replaces its supplier.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").series.put(renderLabels(labels), new Gauge(value));
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type + ", not a " + type);
+        }
+        return family;
+    }
+
+    /**
+     * @return every metric in the Prometheus text exposition format, version 0.0.4
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Metric> series : new TreeMap<>(family.series).entrySet()) {
+                series.getValue().writeTo(out, name, series.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    public void logSummary() {
+        if (families.isEmpty()) {
+            return;
+        }
+        logger.info("Metrics summary");
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            for (Map.Entry<String, Metric> series : new TreeMap<>(entry.getValue().series).entrySet()) {
+                logger.info("  {}{}: {}", entry.getKey(), braces(series.getKey()), series.getValue().summarize());
+            }
+        }
+    }
+
+    /**
+     * Writes the current values in the exposition format, replacing the file atomically, so the
+     * numbers of the last run can be read or pushed somewhere after the process has exited.
+     */
+    public void writeSnapshot(Path file) {
+        try {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tempFile, scrape(), StandardCharsets.UTF_8);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Wrote metrics snapshot to {}", file);
+        } catch (IOException e) {
+            logger.warn("Could not write metrics snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    static String renderLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return rendered.toString();
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static class Family {
+        private final String help;
+        private final String type;
+        private final Map<String, Metric> series = new ConcurrentHashMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        <T extends Metric> T series(String[] labels, Supplier<T> factory, Class<T> kind) {
+            return kind.cast(series.computeIfAbsent(renderLabels(labels), k -> factory.get()));
+        }
+    }
+
+    private record Gauge(DoubleSupplier value) implements Metric {
+        @Override
+        public void writeTo(StringBuilder out, String name, String labels) {
+            out.append(name).append(braces(labels)).append(' ').append(value.getAsDouble()).append('\n');
+        }
+
+        @Override
+        public String summarize() {
+            return String.valueOf(value.getAsDouble());
+        }
+    }
+}
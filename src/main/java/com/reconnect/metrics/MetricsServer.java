@@ -0,0 +1,53 @@
+package com.reconnect.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a {@link MetricsRegistry} on {@code GET /metrics} for a Prometheus scraper, and the log
+ * levels on {@code /loggers} (see {@link LoggerLevelsHandler}).
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MetricsServer.class);
+
+    private final HttpServer server;
+    private final MetricsRegistry registry;
+
+    public MetricsServer(String host, int port, MetricsRegistry registry) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.server.createContext("/metrics", this::handleMetrics);
+        this.server.createContext("/loggers", new LoggerLevelsHandler());
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.start();
+        logger.info("Serving metrics on http://{}:{}/metrics", host, server.getAddress().getPort());
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,40 @@
+package com.reconnect.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ListingRow {
+    private final String dropiLink;
+    private final String aliExpressLink;
+    private final boolean removed;
+
+    @JsonCreator
+    public ListingRow(@JsonProperty("dropiLink") String dropiLink,
+                      @JsonProperty("aliExpressLink") String aliExpressLink,
+                      @JsonProperty("removed") boolean removed) {
+        this.dropiLink = dropiLink;
+        this.aliExpressLink = aliExpressLink;
+        this.removed = removed;
+    }
+
+    public String getDropiLink() {
+        return dropiLink;
+    }
+
+    public String getAliExpressLink() {
+        return aliExpressLink;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return "ListingRow{" +
+                "dropiLink='" + dropiLink + '\'' +
+                ", aliExpressLink='" + aliExpressLink + '\'' +
+                ", removed=" + removed +
+                '}';
+    }
+}
@@ -0,0 +1,34 @@
+package com.reconnect.model;
+
+public class PriceRule {
+    private final String marketingPercent;
+    private final String markupPercent;
+    private final String promoMarkupPercent;
+
+    public PriceRule(String marketingPercent, String markupPercent, String promoMarkupPercent) {
+        this.marketingPercent = marketingPercent;
+        this.markupPercent = markupPercent;
+        this.promoMarkupPercent = promoMarkupPercent;
+    }
+
+    public String getMarketingPercent() {
+        return marketingPercent;
+    }
+
+    public String getMarkupPercent() {
+        return markupPercent;
+    }
+
+    public String getPromoMarkupPercent() {
+        return promoMarkupPercent;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceRule{" +
+                "marketingPercent='" + marketingPercent + '\'' +
+                ", markupPercent='" + markupPercent + '\'' +
+                ", promoMarkupPercent='" + promoMarkupPercent + '\'' +
+                '}';
+    }
+}
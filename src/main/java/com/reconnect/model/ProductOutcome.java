@@ -0,0 +1,9 @@
+package com.reconnect.model;
+
+public enum ProductOutcome {
+    UPDATED,
+    UNCHANGED,
+    /** Processed, but at least one variation had no price; it is not treated as completed. */
+    PARTIAL,
+    FAILED
+}
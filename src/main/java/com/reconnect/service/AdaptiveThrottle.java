@@ -0,0 +1,210 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.PlaywrightException;
+import com.reconnect.metrics.MetricsRegistry;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many calls to an upstream run at the same time, adjusting the limit from what the
+ * upstream reports (additive increase, multiplicative decrease).
+ *
+ * <p>Every call that finishes within the latency target raises the limit by {@code 1/limit}, so
+ * it grows by about one per round of calls up to the maximum. A slow call lowers it by 10%. An
+ * overload signal (a Playwright timeout or error, an I/O error, or HTTP 429/502/503/504) halves
+ * the limit and pauses new calls for an exponential back-off with jitter; overloads reported
+ * during a pause do not halve the limit again, since they were caused by the same episode.
+ *
+ * <p>Browser actions go through {@link #call(Supplier)}; OkHttp calls go through
+ * {@link #interceptor()}. Waiting uses a {@link ReentrantLock}, which does not pin virtual threads.
+ */
+class AdaptiveThrottle {
+    private static final Logger logger = LogManager.getLogger(AdaptiveThrottle.class);
+    private static final double SLOW_DECREASE = 0.9;
+
+    private final String name;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder overloads = new LongAdder();
+    private final LongAdder waitedNanos = new LongAdder();
+    private double limit;
+    private double lowestLimit;
+    private int inFlight;
+    private int consecutiveOverloads;
+    private long pausedUntil;
+
+    AdaptiveThrottle(String name, int maxLimit, long latencyTargetMs, long backoffBaseMs, long backoffMaxMs) {
+        this.name = name;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMs);
+        this.backoffBaseMs = Math.max(1, backoffBaseMs);
+        this.backoffMaxMs = Math.max(this.backoffBaseMs, backoffMaxMs);
+        this.limit = this.maxLimit;
+        this.lowestLimit = this.maxLimit;
+        MetricsRegistry.global().gauge("throttle_limit", "Current concurrency limit of an upstream",
+                this::getLimit, "upstream", name);
+    }
+
+    /**
+     * Runs a browser action under the throttle. Playwright exceptions count as overload and are
+     * rethrown.
+     */
+    <T> T call(Supplier<T> action) {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + name, e);
+        }
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            release(System.nanoTime() - start, false);
+            return result;
+        } catch (RuntimeException e) {
+            release(System.nanoTime() - start, e instanceof PlaywrightException);
+            throw e;
+        }
+    }
+
+    void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return an OkHttp interceptor sending every request of the client through the throttle
+     */
+    Interceptor interceptor() {
+        return chain -> {
+            try {
+                acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + name);
+            }
+            long start = System.nanoTime();
+            try {
+                Response response = chain.proceed(chain.request());
+                release(System.nanoTime() - start, isOverloadStatus(response.code()));
+                return response;
+            } catch (IOException | RuntimeException e) {
+                // a cancelled call, such as the losing copy of a hedged request, is no sign of overload
+                release(System.nanoTime() - start, !chain.call().isCanceled());
+                throw e;
+            }
+        };
+    }
+
+    static boolean isOverloadStatus(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    void acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            while (true) {
+                long pause = pausedUntil - System.nanoTime();
+                if (pause > 0) {
+                    permitReleased.awaitNanos(pause);
+                } else if (inFlight < (int) limit) {
+                    break;
+                } else {
+                    permitReleased.await();
+                }
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        waitedNanos.add(System.nanoTime() - start);
+    }
+
+    void release(long latencyNanos, boolean overloaded) {
+        calls.increment();
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+            if (overloaded) {
+                overloads.increment();
+                MetricsRegistry.global().counter("throttle_overloads_total",
+                        "Calls that reported an overloaded upstream", "upstream", name).increment();
+                if (now >= pausedUntil) {
+                    consecutiveOverloads++;
+                    limit = Math.max(1, limit / 2);
+                    long backoff = backoffMillis(consecutiveOverloads);
+                    pausedUntil = now + TimeUnit.MILLISECONDS.toNanos(backoff);
+                    logger.warn("{} overloaded, limit lowered to {} and paused for {} ms", name, (int) limit, backoff);
+                }
+            } else {
+                consecutiveOverloads = 0;
+                if (latencyTargetNanos > 0 && latencyNanos > latencyTargetNanos) {
+                    slowCalls.increment();
+                    limit = Math.max(1, limit * SLOW_DECREASE);
+                } else {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            lowestLimit = Math.min(lowestLimit, limit);
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Exponential back-off with equal jitter: half of the delay is fixed and half is random, so
+     * callers that failed together do not retry together.
+     *
+     * @param attempt the number of consecutive failures, starting at 1
+     */
+    long backoffMillis(int attempt) {
+        long delay = backoffBaseMs << Math.min(Math.max(0, attempt - 1), 20);
+        delay = Math.min(backoffMaxMs, delay);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void logStats() {
+        if (calls.sum() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            logger.info("{} throttle: limit {} of {} (lowest {}), {} calls, {} slow, {} overloads, {} ms waited",
+                    name, (int) limit, maxLimit, (int) lowestLimit, calls.sum(), slowCalls.sum(), overloads.sum(),
+                    waitedNanos.sum() / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductLinks;
+import com.reconnect.model.ProductOutcome;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Append-only journal of a run: the crawled links, whether the crawl finished, and the outcome of
+ * every processed product. It lets a run that died halfway resume without crawling and saving the
+ * whole catalog again.
+ *
+ * <p>Each record is one tab-separated line:
+ * <pre>
+ * L  dropiLink  aliExpressLink
+ * C  timestamp
+ * O  dropiLink  outcome  timestamp
+ * </pre>
+ * The in-memory state is updated immediately, while the file is written by a virtual writer
+ * thread so that callers never wait on disk I/O. The writer appends whatever records are queued
+ * and forces them to disk every {@code syncEvery} records, when a record arrives more than a
+ * second after the last sync, and on close. A crash can therefore lose the last few outcomes,
+ * which only means those products are processed again on resume.
+ */
+public class CheckpointJournal implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(CheckpointJournal.class);
+    private static final long SYNC_INTERVAL_MS = 1000;
+    private static final String END_OF_JOURNAL = "";
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final Map<String, ProductLinks> links = new LinkedHashMap<>();
+    private final Map<String, ProductOutcome> outcomes = new LinkedHashMap<>();
+    private final BlockingQueue<String> pendingRecords = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile IOException writeError;
+    private boolean crawlComplete;
+    private boolean closed;
+    private int unsyncedRecords;
+    private long lastSync = System.currentTimeMillis();
+
+    private CheckpointJournal(Path file, FileChannel channel, int syncEvery) {
+        this.file = file;
+        this.channel = channel;
+        this.syncEvery = Math.max(1, syncEvery);
+        this.writer = Thread.ofVirtual().name("checkpoint-writer").unstarted(this::writeRecords);
+    }
+
+    /**
+     * Opens the journal. When {@code resume} is set the existing records are loaded and new records
+     * are appended to them; otherwise the journal starts empty. A last line torn by a crash (no
+     * trailing newline) is dropped and cut from the file, so the next record starts on its own line.
+     */
+    public static CheckpointJournal open(Path file, boolean resume, int syncEvery) throws IOException {
+        List<String> existing = List.of();
+        FileChannel channel;
+        if (resume) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            byte[] bytes = Files.readAllBytes(file);
+            int complete = bytes.length;
+            while (complete > 0 && bytes[complete - 1] != '\n') {
+                complete--;
+            }
+            if (complete < bytes.length) {
+                logger.warn("Dropping torn last record of {}: {}", file,
+                        new String(bytes, complete, bytes.length - complete, StandardCharsets.UTF_8));
+                channel.truncate(complete);
+            }
+            channel.position(complete);
+            existing = new String(bytes, 0, complete, StandardCharsets.UTF_8).lines().toList();
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        CheckpointJournal journal = new CheckpointJournal(file, channel, syncEvery);
+
+        for (String line : existing) {
+            journal.replay(line);
+        }
+        journal.writer.start();
+        if (resume) {
+            logger.info("Resuming from {}: {} links, {} completed, crawl {}", file, journal.links.size(),
+                    journal.getCompletedCount(), journal.crawlComplete ? "complete" : "incomplete");
+        }
+        return journal;
+    }
+
+    private void replay(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        String[] fields = line.split("\t");
+        switch (fields[0]) {
+            case "L" -> {
+                if (fields.length >= 3) {
+                    links.putIfAbsent(fields[1], new ProductLinks(fields[1], fields[2]));
+                }
+            }
+            case "C" -> crawlComplete = true;
+            case "O" -> {
+                if (fields.length >= 3) {
+                    try {
+                        outcomes.put(fields[1], ProductOutcome.valueOf(fields[2]));
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Ignoring unknown outcome in checkpoint journal: {}", line);
+                    }
+                }
+            }
+            default -> logger.warn("Ignoring malformed checkpoint record: {}", line);
+        }
+    }
+
+    public synchronized void recordLink(ProductLinks link) {
+        if (links.putIfAbsent(link.getDropiLink(), link) == null) {
+            append("L\t" + link.getDropiLink() + "\t" + link.getAliExpressLink());
+        }
+    }
+
+    public synchronized void recordCrawlComplete() {
+        crawlComplete = true;
+        append("C\t" + Instant.now());
+    }
+
+    public synchronized void recordOutcome(ProductLinks link, ProductOutcome outcome) {
+        outcomes.put(link.getDropiLink(), outcome);
+        append("O\t" + link.getDropiLink() + "\t" + outcome + "\t" + Instant.now());
+    }
+
+    public synchronized boolean isCrawlComplete() {
+        return crawlComplete;
+    }
+
+    /**
+     * @return {@code true} if the product was already updated or found unchanged in this run
+     */
+    public synchronized boolean isCompleted(ProductLinks link) {
+        ProductOutcome outcome = outcomes.get(link.getDropiLink());
+        return outcome == ProductOutcome.UPDATED || outcome == ProductOutcome.UNCHANGED;
+    }
+
+    public synchronized List<ProductLinks> getLinks() {
+        return new ArrayList<>(links.values());
+    }
+
+    /**
+     * @return the crawled links that were not completed yet, in crawl order
+     */
+    public synchronized List<ProductLinks> getPendingLinks() {
+        List<ProductLinks> pending = new ArrayList<>();
+        for (ProductLinks link : links.values()) {
+            if (!isCompleted(link)) {
+                pending.add(link);
+            }
+        }
+        return pending;
+    }
+
+    private int getCompletedCount() {
+        return (int) outcomes.values().stream()
+                .filter(o -> o == ProductOutcome.UPDATED || o == ProductOutcome.UNCHANGED)
+                .count();
+    }
+
+    private void append(String record) {
+        IOException error = writeError;
+        if (error != null) {
+            throw new UncheckedIOException("Could not write checkpoint journal " + file, error);
+        }
+        if (!closed) {
+            pendingRecords.add(record);
+        }
+    }
+
+    private void writeRecords() {
+        List<String> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(pendingRecords.take());
+                pendingRecords.drainTo(batch);
+                boolean end = batch.remove(END_OF_JOURNAL);
+                write(batch);
+                batch.clear();
+                if (end) {
+                    sync();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Checkpoint writer interrupted, flushing {} queued records", pendingRecords.size());
+            flushPending(batch);
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Could not write checkpoint journal {}: {}", file, e.getMessage());
+            writeError = e;
+        }
+    }
+
+    private void flushPending(List<String> batch) {
+        pendingRecords.drainTo(batch);
+        batch.remove(END_OF_JOURNAL);
+        try {
+            write(batch);
+            sync();
+        } catch (IOException e) {
+            logger.error("Could not write checkpoint journal {}: {}", file, e.getMessage());
+            writeError = e;
+        }
+    }
+
+    private void write(List<String> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String record : records) {
+            lines.append(record).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        unsyncedRecords += records.size();
+        boolean crawlRecord = records.stream().anyMatch(record -> record.startsWith("C\t"));
+        if (crawlRecord || unsyncedRecords >= syncEvery || System.currentTimeMillis() - lastSync >= SYNC_INTERVAL_MS) {
+            sync();
+        }
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        unsyncedRecords = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pendingRecords.add(END_OF_JOURNAL);
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Error while closing checkpoint journal", e);
+        }
+    }
+}
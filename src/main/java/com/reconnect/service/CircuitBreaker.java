@@ -0,0 +1,97 @@
+package com.reconnect.service;
+
+import com.reconnect.metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops calling an upstream that keeps failing, so callers skip the work at once instead of each
+ * waiting for its own timeout.
+ *
+ * <p>After {@code failureThreshold} consecutive failures the breaker opens and rejects every call
+ * for {@code openMillis}. It then lets a single probe through (half-open): a success closes it
+ * again, a failure reopens it for another period.
+ */
+class CircuitBreaker {
+    private static final Logger logger = LogManager.getLogger(CircuitBreaker.class);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongAdder rejected = new LongAdder();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private int opened;
+
+    CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        MetricsRegistry.global().gauge("circuit_breaker_open", "1 while calls to an upstream are rejected",
+                () -> getState() == State.CLOSED ? 0 : 1, "upstream", name);
+    }
+
+    /**
+     * @return whether a call may be made now; every permitted call must be followed by
+     *         {@link #recordSuccess()} or {@link #recordFailure()}
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejected.increment();
+        MetricsRegistry.global().counter("circuit_breaker_rejected_total",
+                "Calls skipped because the circuit breaker was open", "upstream", name).increment();
+        return false;
+    }
+
+    synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("{} recovered, closing circuit breaker", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            probeInFlight = false;
+            opened++;
+            logger.warn("{} failed {} times in a row, skipping calls for {} ms",
+                    name, consecutiveFailures, TimeUnit.NANOSECONDS.toMillis(openNanos));
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    void logStats() {
+        synchronized (this) {
+            if (opened == 0) {
+                return;
+            }
+            logger.info("{} circuit breaker: opened {} times, {} calls skipped, now {}",
+                    name, opened, rejected.sum(), state);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
+import com.reconnect.config.AppConfig;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Saves a product by posting the editor form over HTTP with the browser's session cookies,
+ * instead of clicking through the save modal and waiting for the redirect to {@code /produtos}.
+ *
+ * <p>The request format is learned from the first save done through the UI: its URL, headers,
+ * form field names and response status are captured as a template. Only a POST to the editor
+ * form's own target (its {@code action}, or the editor URL when it has none) is captured, so an
+ * analytics or autosave request sent during the click cannot become the template. Later saves
+ * serialize the editor form from the page and post it to that form's target with OkHttp. A save
+ * is only reported as successful when the target has the same path as the template's (product ids
+ * aside), the form contains every field the UI sent (URL-encoded fields or multipart part names)
+ * and the response status matches the captured one; otherwise the caller falls back to the UI
+ * save. Saves use their own timeouts, {@code DIRECT_SAVE_CONNECT_TIMEOUT_MS} and
+ * {@code DIRECT_SAVE_TIMEOUT_MS}, rather than the price service's.
+ *
+ * <p>The first direct save, and every {@value #VERIFY_EVERY}th after it, is checked by loading the
+ * editor again and looking for the submitted original prices. If they are not there, direct saves
+ * are turned off for the rest of the run.
+ *
+ * <p>The price calculator is client-side JavaScript, so the page is still used to compute the
+ * values that end up in the form.
+ */
+class DirectSaveClient {
+    private static final Logger logger = LogManager.getLogger(DirectSaveClient.class);
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            "cookie", "content-length", "content-type", "host", "connection", "accept-encoding");
+    private static final int VERIFY_EVERY = 100;
+    private static final Pattern BOUNDARY_PATTERN = Pattern.compile("boundary=\"?([^\";]+)\"?");
+    private static final Pattern PART_NAME_PATTERN = Pattern.compile(
+            "(?im)^content-disposition:\\s*form-data;.*?\\bname=\"([^\"]*)\"");
+    private static final String FIND_FORM_SCRIPT =
+            "const b = document.querySelector('button.salvarProduto');"
+                    + " const f = (b && (b.form || b.closest('form'))) || document.querySelector('form[method=post], form');"
+                    + " if (!f) return null;"
+                    // f.action falls back to the document URL, so read the attribute itself
+                    + " const target = f.getAttribute('action') ? new URL(f.getAttribute('action'), document.baseURI).href : location.href;";
+    private static final String FORM_TARGET_SCRIPT = "() => { " + FIND_FORM_SCRIPT + " return target; }";
+    private static final String SERIALIZE_FORM_SCRIPT = "() => { " + FIND_FORM_SCRIPT
+            + " const entries = [];"
+            + " for (const [k, v] of new FormData(f)) { if (typeof v === 'string') entries.push([k, v]); }"
+            + " const prices = Array.from(f.querySelectorAll('input[id^=\"preco-original-modificado-\"]'), i => i.value);"
+            + " return { target: target, enctype: f.enctype || '', entries: entries, prices: prices }; }";
+
+    private final OkHttpClient httpClient;
+    private final AtomicInteger directSaves = new AtomicInteger();
+    private volatile Template template;
+    private volatile boolean disabled;
+
+    DirectSaveClient(OkHttpClient baseClient, AdaptiveThrottle dropiThrottle) {
+        // the base client is tuned and throttled for the price service; saves are Dropi requests,
+        // which take as long as the form processing in Dropi
+        OkHttpClient.Builder builder = baseClient.newBuilder()
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .connectTimeout(AppConfig.getDirectSaveConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(AppConfig.getDirectSaveTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(AppConfig.getDirectSaveTimeoutMs(), TimeUnit.MILLISECONDS)
+                .callTimeout(AppConfig.getDirectSaveTimeoutMs(), TimeUnit.MILLISECONDS);
+        builder.interceptors().clear();
+        this.httpClient = builder.addInterceptor(dropiThrottle.interceptor()).build();
+    }
+
+    /**
+     * @return whether the next UI save should be watched for a template
+     */
+    boolean isCapturing() {
+        return template == null && !disabled;
+    }
+
+    /**
+     * @return the URL the editor form on the page submits to, or {@code null} if there is no form
+     */
+    static String formTarget(Page page) {
+        return (String) page.evaluate(FORM_TARGET_SCRIPT);
+    }
+
+    /**
+     * Returns whether a request is the form submission sent by the save button: a POST to the
+     * form's target.
+     */
+    static boolean isSaveRequest(Request request, String formTarget) {
+        return "POST".equals(request.method())
+                && (request.isNavigationRequest()
+                || "xhr".equals(request.resourceType()) || "fetch".equals(request.resourceType()))
+                && formTarget != null && samePath(request.url(), formTarget);
+    }
+
+    /**
+     * Turns direct saves off when the UI save sent no request to the form's target, so the
+     * following saves do not wait for one again.
+     */
+    void captureFailed(String reason) {
+        disabled = true;
+        logger.warn("Could not capture the save request, saving through the UI for the rest of the run: {}", reason);
+    }
+
+    /**
+     * Stores the request sent by a successful UI save as the template for direct saves.
+     */
+    void capture(Request request) {
+        com.microsoft.playwright.Response response = request.response();
+        if (response == null) {
+            logger.warn("Save request to {} has no response, not using it as template", request.url());
+            return;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        request.allHeaders().forEach((name, value) -> {
+            if (!name.startsWith(":") && !SKIPPED_HEADERS.contains(name.toLowerCase())) {
+                headers.put(name, value);
+            }
+        });
+
+        String contentType = request.headerValue("content-type");
+        Set<String> fieldNames;
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            fieldNames = parseFieldNames(request.postData());
+        } else if (contentType != null && contentType.startsWith("multipart/form-data")) {
+            fieldNames = parseMultipartFieldNames(contentType, request.postDataBuffer());
+            if (fieldNames.isEmpty()) {
+                logger.warn("Could not read the parts of the multipart save request to {}, direct save disabled",
+                        request.url());
+                return;
+            }
+        } else {
+            logger.warn("Save request to {} is not a form submission ({}), direct save disabled",
+                    request.url(), contentType);
+            return;
+        }
+
+        template = new Template(request.url(), pathPattern(request.url()), contentType, headers, fieldNames,
+                response.status());
+        logger.info("Captured save request template: POST {} ({} fields, status {})",
+                request.url(), fieldNames.size(), response.status());
+    }
+
+    /**
+     * Posts the editor form of the current page directly.
+     *
+     * @return {@code true} if the save was accepted, {@code false} if the caller should save through the UI
+     */
+    @SuppressWarnings("unchecked")
+    boolean save(Page page) {
+        Template current = template;
+        if (current == null || disabled) {
+            return false;
+        }
+
+        Map<String, Object> form = (Map<String, Object>) page.evaluate(SERIALIZE_FORM_SCRIPT);
+        if (form == null) {
+            logger.warn("Could not find the product form, falling back to UI save");
+            return false;
+        }
+
+        List<List<String>> entries = (List<List<String>>) form.get("entries");
+        Set<String> names = entries.stream().map(entry -> entry.get(0)).collect(Collectors.toSet());
+        if (!names.containsAll(current.fieldNames())) {
+            Set<String> missing = new LinkedHashSet<>(current.fieldNames());
+            missing.removeAll(names);
+            logger.warn("Product form is missing fields {} sent by the UI save, falling back to UI save", missing);
+            return false;
+        }
+
+        String url = (String) form.get("target");
+        if (!current.pathPattern().equals(pathPattern(url))) {
+            logger.warn("Product form posts to {}, which does not match the captured save request {}, "
+                    + "falling back to UI save", url, current.url());
+            return false;
+        }
+        okhttp3.Request.Builder request = new okhttp3.Request.Builder()
+                .url(url)
+                .post(buildBody(current.contentType(), entries))
+                .header("Referer", page.url());
+        current.headers().forEach(request::header);
+
+        String cookies = page.context().cookies(url).stream()
+                .map(cookie -> cookie.name + "=" + cookie.value)
+                .collect(Collectors.joining("; "));
+        if (!cookies.isEmpty()) {
+            request.header("Cookie", cookies);
+        }
+
+        try (Response response = httpClient.newCall(request.build()).execute()) {
+            if (response.code() != current.expectedStatus()) {
+                logger.warn("Direct save returned status {} instead of {}, falling back to UI save",
+                        response.code(), current.expectedStatus());
+                return false;
+            }
+            String location = response.header("Location");
+            if (response.isRedirect() && (location == null || !location.contains("/produtos"))) {
+                logger.warn("Direct save redirected to {}, falling back to UI save", location);
+                return false;
+            }
+            logger.debug("Saved product directly with status {}", response.code());
+        } catch (IOException e) {
+            logger.warn("Direct save failed: {}, falling back to UI save", e.getMessage());
+            return false;
+        }
+
+        if (directSaves.getAndIncrement() % VERIFY_EVERY == 0
+                && !verifySaved(page.url(), cookies, (List<String>) form.get("prices"))) {
+            disabled = true;
+            logger.error("Direct save of {} did not store the submitted prices, "
+                    + "saving through the UI for the rest of the run", page.url());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Loads the editor again and checks that it shows every submitted original price.
+     */
+    private boolean verifySaved(String editorUrl, String cookies, List<String> prices) {
+        okhttp3.Request.Builder request = new okhttp3.Request.Builder().url(editorUrl).get();
+        if (!cookies.isEmpty()) {
+            request.header("Cookie", cookies);
+        }
+        try (Response response = httpClient.newCall(request.build()).execute()) {
+            if (!response.isSuccessful()) {
+                logger.warn("Could not load {} to verify the direct save: status {}", editorUrl, response.code());
+                return false;
+            }
+            String html = response.body().string();
+            for (String price : prices) {
+                if (!price.isEmpty() && !html.contains("value=\"" + price + "\"")) {
+                    logger.warn("Editor {} does not show the saved price {}", editorUrl, price);
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not load {} to verify the direct save: {}", editorUrl, e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean samePath(String url, String otherUrl) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        HttpUrl other = HttpUrl.parse(otherUrl);
+        return parsed != null && other != null
+                && parsed.host().equals(other.host()) && parsed.encodedPath().equals(other.encodedPath());
+    }
+
+    /**
+     * @return the host and path of a URL with every number replaced, so the save URLs of two
+     *         products compare equal
+     */
+    static String pathPattern(String url) {
+        HttpUrl parsed = url != null ? HttpUrl.parse(url) : null;
+        return parsed == null ? "" : parsed.host() + parsed.encodedPath().replaceAll("\\d+", "{id}");
+    }
+
+    private static RequestBody buildBody(String contentType, List<List<String>> entries) {
+        if (contentType != null && contentType.startsWith("multipart/form-data")) {
+            MultipartBody.Builder body = new MultipartBody.Builder().setType(MultipartBody.FORM);
+            entries.forEach(entry -> body.addFormDataPart(entry.get(0), entry.get(1)));
+            return body.build();
+        }
+        FormBody.Builder body = new FormBody.Builder(StandardCharsets.UTF_8);
+        entries.forEach(entry -> body.add(entry.get(0), entry.get(1)));
+        return body.build();
+    }
+
+    /**
+     * @return the names of the parts of a {@code multipart/form-data} body, or an empty set if the
+     *         boundary is missing from the content type
+     */
+    static Set<String> parseMultipartFieldNames(String contentType, byte[] body) {
+        Set<String> names = new LinkedHashSet<>();
+        Matcher boundary = BOUNDARY_PATTERN.matcher(contentType);
+        if (body == null || !boundary.find()) {
+            return names;
+        }
+        // ISO-8859-1 maps every byte to one char, so binary parts cannot break the split
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        for (String part : text.split(Pattern.quote("--" + boundary.group(1)))) {
+            int headersEnd = part.indexOf("\r\n\r\n");
+            Matcher name = PART_NAME_PATTERN.matcher(headersEnd >= 0 ? part.substring(0, headersEnd) : "");
+            if (name.find()) {
+                names.add(new String(name.group(1).getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+            }
+        }
+        return names;
+    }
+
+    static Set<String> parseFieldNames(String postData) {
+        Set<String> names = new LinkedHashSet<>();
+        if (postData == null || postData.isEmpty()) {
+            return names;
+        }
+        for (String pair : postData.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator >= 0 ? pair.substring(0, separator) : pair;
+            names.add(URLDecoder.decode(name, StandardCharsets.UTF_8));
+        }
+        return names;
+    }
+
+    private record Template(String url, String pathPattern, String contentType, Map<String, String> headers,
+            Set<String> fieldNames, int expectedStatus) {
+    }
+}
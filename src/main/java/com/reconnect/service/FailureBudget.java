@@ -0,0 +1,47 @@
+package com.reconnect.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks failed products against the "up to 1/3 of products may fail" budget. Shared by every
+ * worker of a run so the limit applies to the run as a whole, not per worker.
+ *
+ * <p>When products are streamed in while the catalog is still being crawled, the budget is
+ * computed against the products submitted so far.
+ */
+class FailureBudget {
+    private final AtomicInteger submittedProducts = new AtomicInteger();
+    private final AtomicInteger failedProducts = new AtomicInteger();
+
+    FailureBudget() {
+    }
+
+    FailureBudget(int totalProducts) {
+        recordSubmitted(totalProducts);
+    }
+
+    void recordSubmitted(int products) {
+        submittedProducts.addAndGet(products);
+    }
+
+    /**
+     * Records a failed product and returns {@code true} when the budget has been exceeded.
+     */
+    boolean recordFailure() {
+        failedProducts.incrementAndGet();
+        return isExceeded();
+    }
+
+    boolean isExceeded() {
+        // Allow up to 1/3 of products to fail
+        return failedProducts.get() > submittedProducts.get() / 3;
+    }
+
+    int getSubmittedProducts() {
+        return submittedProducts.get();
+    }
+
+    int getFailedProducts() {
+        return failedProducts.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.reconnect.service;
+
+import java.util.Arrays;
+
+/**
+ * Percentile of the most recent call latencies, used to decide when a call is slow enough to be
+ * worth a hedged duplicate. The window is small and the percentile is recomputed only every
+ * {@code RECOMPUTE_EVERY} samples, so reading it costs nothing on the request path.
+ */
+class LatencyTracker {
+    private static final int WINDOW = 256;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final double percentile;
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+    private volatile long cachedNanos;
+
+    LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+        if (count >= RECOMPUTE_EVERY && next % RECOMPUTE_EVERY == 0) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            cachedNanos = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+        }
+    }
+
+    /**
+     * @return the percentile of the recent latencies, or 0 until enough samples were recorded
+     */
+    long getNanos() {
+        return cachedNanos;
+    }
+}
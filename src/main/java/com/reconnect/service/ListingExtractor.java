@@ -0,0 +1,104 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.TimeoutError;
+import com.reconnect.config.AppConfig;
+import com.reconnect.model.ListingRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the product rows of a loaded {@code /produtos} listing page.
+ *
+ * <p>{@link #extractRows(Page)} collects every row with a single script evaluated in the page and
+ * returns the result as one JSON string. {@link #extractRowsWithHandles(Page)} is the previous
+ * implementation, which needs several driver round-trips per row; it is kept for comparison in
+ * the {@code ListingExtractionBenchmark} of the benchmarks module.
+ */
+public class ListingExtractor {
+    private static final Logger logger = LogManager.getLogger(ListingExtractor.class);
+
+    static final String ROW_SELECTOR = "tr.dropi--table-row-product";
+    static final String REMOVED_TAG_SELECTOR =
+            "span.dropi--tag-red[data-original-title='O anúncio deste produto no Fornecedor foi removido, altere o produto para não exibir em sua loja']";
+    static final String DROPI_LINK_SELECTOR = "a[href^='" + AppConfig.getDropiUrl() + "/editar/produto/']";
+    static final String ALIEXPRESS_LINK_SELECTOR = "a[href^='https://pt.aliexpress.com/item/']";
+
+    private static final String EXTRACT_ROWS_SCRIPT =
+            "(rows, s) => JSON.stringify(rows.map(r => {"
+                    + " const d = r.querySelector(s.dropi); const a = r.querySelector(s.aliExpress);"
+                    + " return { dropiLink: d ? d.getAttribute('href') : null,"
+                    + " aliExpressLink: a ? a.getAttribute('href') : null,"
+                    + " removed: r.querySelector(s.removed) !== null };"
+                    + " }).filter(r => r.dropiLink && (r.removed || r.aliExpressLink)))";
+    private static final Map<String, String> SELECTORS = Map.of(
+            "dropi", DROPI_LINK_SELECTOR,
+            "aliExpress", ALIEXPRESS_LINK_SELECTOR,
+            "removed", REMOVED_TAG_SELECTOR);
+    private static final ObjectReader ROWS_READER = new ObjectMapper().readerFor(ListingRow[].class);
+
+    private ListingExtractor() {
+    }
+
+    /**
+     * Extracts every product row of the current page. Rows tagged as removed by the supplier are
+     * returned with {@link ListingRow#isRemoved()} set and may lack an AliExpress link.
+     */
+    public static List<ListingRow> extractRows(Page page) {
+        String json = (String) page.evalOnSelectorAll(ROW_SELECTOR, EXTRACT_ROWS_SCRIPT, SELECTORS);
+        try {
+            ListingRow[] rows = ROWS_READER.readValue(json);
+            return Arrays.asList(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not parse listing rows", e);
+        }
+    }
+
+    /**
+     * Same result as {@link #extractRows(Page)}, reading every row through element handles.
+     */
+    public static List<ListingRow> extractRowsWithHandles(Page page) {
+        List<ElementHandle> rows = page.querySelectorAll(ROW_SELECTOR);
+        List<ListingRow> listingRows = new ArrayList<>();
+
+        for (ElementHandle row : rows) {
+            try {
+                ElementHandle removedTag = row.querySelector(REMOVED_TAG_SELECTOR);
+
+                if (removedTag != null) {
+                    ElementHandle dropiLink = row.querySelector(DROPI_LINK_SELECTOR);
+                    if (dropiLink != null) {
+                        ElementHandle aliExpressLink = row.querySelector(ALIEXPRESS_LINK_SELECTOR);
+                        listingRows.add(new ListingRow(dropiLink.getAttribute("href"),
+                                aliExpressLink != null ? aliExpressLink.getAttribute("href") : null, true));
+                    }
+                    continue;
+                }
+
+                ElementHandle dropiLink = row.waitForSelector(DROPI_LINK_SELECTOR,
+                        new ElementHandle.WaitForSelectorOptions().setTimeout(5000));
+
+                ElementHandle aliExpressLink = row.waitForSelector(ALIEXPRESS_LINK_SELECTOR,
+                        new ElementHandle.WaitForSelectorOptions().setTimeout(5000));
+
+                if (dropiLink != null && aliExpressLink != null) {
+                    listingRows.add(new ListingRow(dropiLink.getAttribute("href"),
+                            aliExpressLink.getAttribute("href"), false));
+                }
+            } catch (TimeoutError e) {
+                logger.error("Timeout while processing row: {}", e.getMessage());
+            }
+        }
+        return listingRows;
+    }
+}
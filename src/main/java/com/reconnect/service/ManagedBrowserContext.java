@@ -0,0 +1,188 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.PlaywrightException;
+import com.reconnect.metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A browser context owned by one product worker that is replaced before it degrades.
+ *
+ * <p>Long runs in a single context slowly grow the renderer's heap and eventually end with a
+ * crashed tab that fails every remaining product. The context is therefore closed and reopened
+ * after a fixed number of products, or sooner when the page's JavaScript heap grows past a
+ * threshold. A crashed or closed page, or a disconnected browser, is detected before the next
+ * product and replaced as well; the browser is only relaunched when it is gone.
+ *
+ * <p>New contexts are seeded from a storage state shared by all workers. Every healthy context
+ * publishes its cookies and local storage to it before being recycled, so a session refreshed by
+ * Dropi in one worker is carried over to the contexts opened afterwards.
+ *
+ * <p>Like every Playwright object, an instance must only be used by one thread at a time; it can
+ * move to another thread through a handoff that orders the accesses, see {@link WorkerBrowsers}.
+ */
+class ManagedBrowserContext implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ManagedBrowserContext.class);
+    private static final String HEAP_USED_SCRIPT =
+            "() => performance.memory ? performance.memory.usedJSHeapSize : 0";
+
+    private final String name;
+    private final Playwright playwright;
+    private AtomicReference<String> sharedStorageState;
+    private final RequestInterceptor requestInterceptor;
+    private final int recycleAfterProducts;
+    private final long maxHeapBytes;
+    private final MetricsRegistry metrics = MetricsRegistry.global();
+    private Browser browser;
+    private BrowserContext context;
+    private Page page;
+    private volatile boolean crashed;
+    private int productsInContext;
+    private int recycles;
+
+    /**
+     * @param recycleAfterProducts products processed before the context is replaced, 0 to never recycle on count
+     * @param maxHeapBytes JavaScript heap size that triggers a replacement, 0 to never recycle on memory
+     */
+    ManagedBrowserContext(String name, Playwright playwright, AtomicReference<String> sharedStorageState,
+            RequestInterceptor requestInterceptor, int recycleAfterProducts, long maxHeapBytes) {
+        this.name = name;
+        this.playwright = playwright;
+        this.sharedStorageState = sharedStorageState;
+        this.requestInterceptor = requestInterceptor;
+        this.recycleAfterProducts = recycleAfterProducts;
+        this.maxHeapBytes = maxHeapBytes;
+    }
+
+    /**
+     * Returns a usable page, replacing the context first if its page crashed or was closed.
+     */
+    Page page() {
+        if (page == null) {
+            open();
+        } else if (crashed) {
+            recycle("crash");
+        } else if (page.isClosed()) {
+            recycle("closed");
+        } else if (!browser.isConnected()) {
+            recycle("disconnected");
+        }
+        return page;
+    }
+
+    /**
+     * Counts a processed product and recycles the context if it reached its product or memory limit.
+     */
+    void productDone() {
+        productsInContext++;
+        if (page == null || crashed || page.isClosed()) {
+            return;
+        }
+        if (recycleAfterProducts > 0 && productsInContext >= recycleAfterProducts) {
+            recycle("products");
+            return;
+        }
+        long heapBytes = usedHeapBytes();
+        if (maxHeapBytes > 0 && heapBytes > maxHeapBytes) {
+            logger.info("{}: JavaScript heap at {} MB after {} products",
+                    name, heapBytes / (1024 * 1024), productsInContext);
+            recycle("memory");
+        }
+    }
+
+    private long usedHeapBytes() {
+        try {
+            Object used = page.evaluate(HEAP_USED_SCRIPT);
+            return used instanceof Number number ? number.longValue() : 0;
+        } catch (PlaywrightException e) {
+            logger.debug("{}: could not read heap size: {}", name, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void recycle(String reason) {
+        logger.info("{}: replacing browser context after {} products ({})", name, productsInContext, reason);
+        metrics.counter("browser_context_recycles_total", "Browser contexts replaced, by reason", "reason", reason)
+                .increment();
+        recycles++;
+        closeContext(!crashed);
+        open();
+    }
+
+    private void open() {
+        if (browser == null || !browser.isConnected()) {
+            closeBrowser();
+            browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+        }
+        context = browser.newContext(new Browser.NewContextOptions()
+                .setStorageState(sharedStorageState.get())
+                .setViewportSize(PlaywrightService.VIEWPORT_WIDTH, PlaywrightService.VIEWPORT_HEIGHT));
+        if (requestInterceptor != null) {
+            requestInterceptor.install(context);
+        }
+        page = context.newPage();
+        page.setDefaultTimeout(PlaywrightService.DEFAULT_TIMEOUT);
+        crashed = false;
+        page.onCrash(crashedPage -> {
+            logger.warn("{}: page crashed at {}", name, crashedPage.url());
+            crashed = true;
+        });
+        productsInContext = 0;
+    }
+
+    /**
+     * @param publishState whether the context is healthy enough to hand its session to the next ones
+     */
+    private void closeContext(boolean publishState) {
+        if (context == null) {
+            return;
+        }
+        try {
+            if (publishState && browser.isConnected()) {
+                sharedStorageState.set(context.storageState());
+            }
+            context.close();
+        } catch (PlaywrightException e) {
+            logger.warn("{}: error closing browser context: {}", name, e.getMessage());
+        }
+        context = null;
+        page = null;
+    }
+
+    private void closeBrowser() {
+        if (browser == null) {
+            return;
+        }
+        try {
+            browser.close();
+        } catch (PlaywrightException e) {
+            logger.warn("{}: error closing browser: {}", name, e.getMessage());
+        }
+        browser = null;
+    }
+
+    /**
+     * Shares sessions through the given state from now on, when a warm browser joins another pool.
+     * The open context keeps its current session until it is replaced.
+     */
+    void shareStorageState(AtomicReference<String> storageState) {
+        this.sharedStorageState = storageState;
+    }
+
+    int getRecycles() {
+        return recycles;
+    }
+
+    @Override
+    public void close() {
+        closeContext(!crashed);
+        closeBrowser();
+    }
+}
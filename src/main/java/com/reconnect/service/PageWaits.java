@@ -0,0 +1,152 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.TimeoutError;
+import com.microsoft.playwright.options.LoadState;
+import com.microsoft.playwright.options.WaitForSelectorState;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Waits used between browser steps. Each wait blocks until the page signals it is ready for the
+ * next step instead of sleeping for a fixed time. The fixed time it replaces is kept as the upper
+ * bound of the wait, so a signal that never arrives costs no more than the old sleep did.
+ *
+ * <p>Setting {@code FIXED_WAITS=true} restores the original sleeps, which is useful to compare
+ * the {@link StepTimer} summaries of both modes.
+ */
+class PageWaits {
+    private static final Logger logger = LogManager.getLogger(PageWaits.class);
+    private static final int ROWS_STABLE_MS = 250;
+    private static final double POLLING_INTERVAL_MS = 50;
+    private static final String CALCULATOR_READY_SCRIPT =
+            "() => ['input.valor-produto-aliexpress', 'input.porcentagem-marketing', "
+                    + "'input.base-markup', 'input.base-markup-promocional']"
+                    + ".every(s => { const e = document.querySelector(s); "
+                    + "return e && !e.disabled && e.offsetParent !== null; })";
+    private static final String SKUS_READY_SCRIPT =
+            "() => Array.from(document.querySelectorAll('tr.quantidade-variacoes input.sku-inputs-verify'))"
+                    + ".every(e => e.value && e.value.length > 0)";
+    // true once the row count was the same for ROWS_STABLE_MS; load states are per document and
+    // stay reached, so they say nothing about rows rendered after the first network idle
+    private static final String ROWS_STABLE_SCRIPT =
+            "([selector, stableMs]) => { const n = document.querySelectorAll(selector).length; "
+                    + "const now = performance.now(); const seen = window.__reconnectRows; "
+                    + "if (!seen || seen.n !== n) { window.__reconnectRows = { n, since: now }; return false; } "
+                    + "return n > 0 && now - seen.since >= stableMs; }";
+    private static final String CALCULATOR_CLOSED_SCRIPT =
+            "([rowId, salePriceBefore]) => { const c = document.querySelector('input.valor-produto-aliexpress'); "
+                    + "const sale = document.getElementById('preco-venda-' + rowId); "
+                    + "return !c || c.offsetParent === null || (sale !== null && sale.value !== salePriceBefore); }";
+    private static final String APPLY_READY_SCRIPT =
+            "() => { const b = document.querySelector('button#aplicarPrecosCalculadora'); "
+                    + "return !b || !b.disabled; }";
+
+    private final boolean fixedWaits;
+    private final StepTimer stepTimer;
+
+    PageWaits(boolean fixedWaits, StepTimer stepTimer) {
+        this.fixedWaits = fixedWaits;
+        this.stepTimer = stepTimer;
+    }
+
+    /**
+     * After the first listing row is visible, waits for the remaining rows to finish loading: the
+     * number of rows must stay the same for {@value #ROWS_STABLE_MS} ms.
+     */
+    void listingRowsLoaded(Page page) {
+        wait("wait.listing-rows", page, 5000, timeout -> page.waitForFunction(ROWS_STABLE_SCRIPT,
+                List.of(ListingExtractor.ROW_SELECTOR, ROWS_STABLE_MS),
+                new Page.WaitForFunctionOptions().setPollingInterval(POLLING_INTERVAL_MS).setTimeout(timeout)));
+    }
+
+    /**
+     * Between two listing pages. The next navigation already waits for its page to load.
+     */
+    void betweenListingPages(Page page) {
+        wait("wait.listing-next-page", page, 5000, timeout -> {
+        });
+    }
+
+    /**
+     * After the prices tab is opened, waits until every variation row has its SKU filled in.
+     */
+    void pricesTabLoaded(Page page) {
+        wait("wait.prices-tab", page, 5000, timeout -> page.waitForFunction(SKUS_READY_SCRIPT, null,
+                new Page.WaitForFunctionOptions().setTimeout(timeout)));
+    }
+
+    /**
+     * After clicking {@code #lucro-<rowId>}, waits for the calculator inputs to become usable.
+     */
+    void calculatorOpened(Page page) {
+        wait("wait.calculator-open", page, 5000, timeout -> page.waitForFunction(CALCULATOR_READY_SCRIPT, null,
+                new Page.WaitForFunctionOptions().setTimeout(timeout)));
+    }
+
+    /**
+     * After the calculator fields are filled, waits for the apply button to be enabled.
+     */
+    void calculatorFilled(Page page) {
+        wait("wait.calculator-filled", page, 3000, timeout -> page.waitForFunction(APPLY_READY_SCRIPT, null,
+                new Page.WaitForFunctionOptions().setTimeout(timeout)));
+    }
+
+    /**
+     * @return the sale price of a variation row, to pass to {@link #calculatorApplied} once the
+     *         calculator is applied
+     */
+    String salePrice(Page page, String rowId) {
+        ElementHandle salePriceInput = page.querySelector("#preco-venda-" + rowId);
+        return salePriceInput != null ? salePriceInput.inputValue() : null;
+    }
+
+    /**
+     * After the calculator values are applied to a variation row, waits until the calculator is
+     * hidden or the row's sale price differs from {@code salePriceBefore}.
+     */
+    void calculatorApplied(Page page, String rowId, String salePriceBefore) {
+        wait("wait.calculator-applied", page, 3000, timeout -> page.waitForFunction(CALCULATOR_CLOSED_SCRIPT,
+                Arrays.asList(rowId, salePriceBefore),
+                new Page.WaitForFunctionOptions().setPollingInterval(POLLING_INTERVAL_MS).setTimeout(timeout)));
+    }
+
+    /**
+     * After the main save button is clicked, waits for the confirmation modal.
+     */
+    void saveModalOpened(Page page) {
+        wait("wait.save-modal", page, 8000, timeout -> page.waitForSelector("#atualizarProdutoModal",
+                new Page.WaitForSelectorOptions().setState(WaitForSelectorState.VISIBLE).setTimeout(timeout)));
+    }
+
+    /**
+     * After the redirect to the product list that follows a save.
+     */
+    void saveCompleted(Page page) {
+        wait("wait.save-completed", page, 10000, timeout -> page.waitForLoadState(LoadState.NETWORKIDLE,
+                new Page.WaitForLoadStateOptions().setTimeout(timeout)));
+    }
+
+    private void wait(String step, Page page, double fixedTimeout, Condition condition) {
+        if (fixedWaits) {
+            stepTimer.time(step, () -> page.waitForTimeout(fixedTimeout));
+            return;
+        }
+        stepTimer.time(step, () -> {
+            try {
+                condition.await(fixedTimeout);
+            } catch (TimeoutError e) {
+                logger.debug("Condition for {} not met within {} ms, continuing", step, (long) fixedTimeout);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        void await(double timeout);
+    }
+}
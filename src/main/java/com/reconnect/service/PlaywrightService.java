@@ -1,55 +1,89 @@
 package com.reconnect.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.*;
+import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.WaitForSelectorState;
+import com.microsoft.playwright.options.WaitUntilState;
 import com.reconnect.config.AppConfig;
+import com.reconnect.metrics.MetricsRegistry;
+import com.reconnect.model.ListingRow;
+import com.reconnect.model.PriceRule;
 import com.reconnect.model.ProductLinks;
+import com.reconnect.model.ProductOutcome;
 import com.reconnect.model.ProductResponse;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.RequestBody;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class PlaywrightService implements AutoCloseable {
     private static final Logger logger = LogManager.getLogger(PlaywrightService.class);
     private final Playwright playwright;
-    private final Browser browser;
-    private final BrowserContext context;
-    private final Page page;
-    private static final Path USER_DATA_DIR = Paths.get("browser-data");
-    private static final int DEFAULT_TIMEOUT = 60000;
-    private final OkHttpClient httpClient;
-    private final ObjectMapper objectMapper;
-    private static final String API_URL = AppConfig.getApiUrl() + "/api/products/find";
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private Browser browser;
+    private BrowserContext context;
+    private Page page;
+    private volatile boolean pageCrashed;
+    private volatile boolean contextClosed;
+    private static final Path USER_DATA_DIR = AppConfig.getUserDataDir();
+    static final int DEFAULT_TIMEOUT = 60000;
+    static final int VIEWPORT_WIDTH = 1920;
+    static final int VIEWPORT_HEIGHT = 1080;
+    private static final String EMPTY_CATALOG_SELECTOR = "span:text('Ops, você ainda não tem nenhum produto importado')";
+    private final PriceCache priceCache;
+    private final PriceApiClient priceApiClient;
+    private final ProductIndex productIndex;
+    private final PricingRuleEngine pricingRules;
+    private final RequestInterceptor requestInterceptor;
+    private final DirectSaveClient directSaveClient;
+    private final AdaptiveThrottle dropiThrottle = new AdaptiveThrottle("dropi", AppConfig.getDropiMaxConcurrency(),
+            AppConfig.getDropiLatencyTargetMs(), AppConfig.getRetryBackoffBaseMs(), AppConfig.getRetryBackoffMaxMs());
+    private final Semaphore saveSlots = new Semaphore(AppConfig.getMaxInFlightSaves(), true);
+    private final MetricsRegistry metrics = MetricsRegistry.global();
+    private final StepTimer stepTimer = new StepTimer(metrics);
+    private final PageWaits waits = new PageWaits(AppConfig.useFixedWaits(), stepTimer);
+    private final boolean skipUnchanged = AppConfig.isSkipUnchangedEnabled();
+    private CheckpointJournal checkpointJournal;
+    private WorkerBrowsers warmWorkerBrowsers;
 
     public PlaywrightService() {
         logger.info("Initializing PlaywrightService");
         try {
             this.playwright = Playwright.create();
-            this.httpClient = new OkHttpClient();
-            this.objectMapper = new ObjectMapper();
-
-            logger.debug("Configuring browser options");
-            BrowserType.LaunchPersistentContextOptions contextOptions = new BrowserType.LaunchPersistentContextOptions()
-                    .setHeadless(true)
-                    .setViewportSize(1920, 1080);
-
-            logger.info("Launching browser in headless mode");
-            this.context = playwright.chromium().launchPersistentContext(USER_DATA_DIR, contextOptions);
-            this.browser = context.browser();
-            this.page = context.newPage();
-
-            page.setDefaultTimeout(DEFAULT_TIMEOUT);
+            if (AppConfig.isPriceCacheEnabled()) {
+                this.priceCache = PriceCache.load(AppConfig.getPriceCacheFile(USER_DATA_DIR),
+                        AppConfig.getPriceCacheMaxEntries(), AppConfig.getPriceCacheMinTtl(), AppConfig.getPriceCacheMaxTtl());
+            } else {
+                logger.info("Price cache disabled, every price is looked up");
+                this.priceCache = null;
+            }
+            this.priceApiClient = new PriceApiClient(AppConfig.getApiUrl(), priceCache);
+            this.productIndex = ProductIndex.load(AppConfig.getProductIndexFile(USER_DATA_DIR));
+            this.pricingRules = PricingRuleEngine.load(AppConfig.getPricingRulesFile());
+            this.directSaveClient = AppConfig.isDirectSaveEnabled()
+                    ? new DirectSaveClient(priceApiClient.getHttpClient(), dropiThrottle)
+                    : null;
+
+            if (AppConfig.isResourceBlockingEnabled()) {
+                logger.info("Blocking resource types {} and URL patterns {}",
+                        AppConfig.getBlockedResourceTypes(), AppConfig.getBlockedUrlPatterns());
+                this.requestInterceptor = new RequestInterceptor(AppConfig.getBlockedResourceTypes(),
+                        AppConfig.getBlockedUrlPatterns(), AppConfig.getAllowedUrlPatterns());
+            } else {
+                this.requestInterceptor = null;
+            }
+            launchContext();
 
             logger.debug("Browser setup complete");
             logger.info("PlaywrightService initialized successfully");
@@ -59,8 +93,65 @@ public class PlaywrightService implements AutoCloseable {
         }
     }
 
+    private void launchContext() {
+        logger.debug("Configuring browser options");
+        BrowserType.LaunchPersistentContextOptions contextOptions = new BrowserType.LaunchPersistentContextOptions()
+                .setHeadless(true)
+                .setViewportSize(VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+
+        logger.info("Launching browser in headless mode");
+        context = playwright.chromium().launchPersistentContext(USER_DATA_DIR, contextOptions);
+        browser = context.browser();
+        contextClosed = false;
+        context.onClose(closed -> contextClosed = true);
+        if (requestInterceptor != null) {
+            requestInterceptor.install(context);
+        }
+        openMainPage();
+    }
+
+    private void openMainPage() {
+        page = context.newPage();
+        page.setDefaultTimeout(DEFAULT_TIMEOUT);
+        pageCrashed = false;
+        page.onCrash(crashed -> pageCrashed = true);
+    }
+
+    /**
+     * Returns the main page, first replacing it if it crashed or was closed, and relaunching the
+     * browser if it went away. Long-lived processes such as the daemon would otherwise fail every
+     * later job after a single renderer or browser crash.
+     */
+    private Page mainPage() {
+        if (contextClosed) {
+            logger.warn("Browser closed unexpectedly, relaunching it");
+            metrics.counter("browser_context_recycles_total", "Browser contexts replaced, by reason",
+                    "reason", "main-browser-closed").increment();
+            launchContext();
+        } else if (pageCrashed || page.isClosed()) {
+            logger.warn("Main page {}, opening a new one", pageCrashed ? "crashed" : "was closed");
+            metrics.counter("browser_context_recycles_total", "Browser contexts replaced, by reason",
+                    "reason", "main-page-crash").increment();
+            try {
+                page.close();
+            } catch (PlaywrightException e) {
+                logger.debug("Could not close the crashed page: {}", e.getMessage());
+            }
+            openMainPage();
+        }
+        return page;
+    }
+
+    /**
+     * Records crawled links and product outcomes in the given journal, and skips products the
+     * journal already marks as completed.
+     */
+    public void setCheckpointJournal(CheckpointJournal checkpointJournal) {
+        this.checkpointJournal = checkpointJournal;
+    }
+
     public void navigateTo(String url) {
-        page.navigate(url);
+        mainPage().navigate(url);
     }
 
     public String getPageTitle() {
@@ -69,202 +160,524 @@ public class PlaywrightService implements AutoCloseable {
 
     public List<ProductLinks> extractProductLinks() {
         List<ProductLinks> productLinks = new ArrayList<>();
-        int currentPage = 0;
-        boolean hasNextPage = true;
-
-        try {
-            while (hasNextPage) {
-                logger.info("Processing page {}", currentPage);
-                String pageUrl = String.format("https://app.dropi.com.br/produtos?&pg=%d", currentPage);
-                page.navigate(pageUrl);
-                
-                // First check for empty products message
-                ElementHandle emptyMessage = page.querySelector(
-                    "span:text('Ops, você ainda não tem nenhum produto importado')");
-                
-                if (emptyMessage != null) {
-                    logger.info("No more products to process");
-                    return productLinks;
-                }
-
-                try {
-                    page.waitForSelector("tr.dropi--table-row-product",
-                            new Page.WaitForSelectorOptions()
-                                    .setState(WaitForSelectorState.VISIBLE)
-                                    .setTimeout(DEFAULT_TIMEOUT));
-                } catch (TimeoutError e) {
-                    logger.info("No more pages to process, stopping at page {}", currentPage);
-                    break;
-                }
+        extractProductLinks(productLinks::add);
+        return productLinks;
+    }
 
-                page.waitForTimeout(5000);
+    public int extractProductLinks(Consumer<ProductLinks> sink) {
+        return extractProductLinks(sink, AppConfig.isIncrementalCrawlEnabled());
+    }
 
-                List<ElementHandle> rows = page.querySelectorAll("tr.dropi--table-row-product");
-                logger.debug("Found {} product rows on page {}", rows.size(), currentPage);
+    /**
+     * Walks the product listing and hands every link to {@code sink} as soon as its row is parsed.
+     *
+     * @param allowIncremental whether the crawl may stop early at a page of known products; a
+     *                         full crawl is still done when one is due
+     * @return the number of links handed to the sink
+     */
+    public int extractProductLinks(Consumer<ProductLinks> sink, boolean allowIncremental) {
+        int extractedLinks = 0;
+        int currentPage = 0;
+        Instant crawlStarted = Instant.now();
+        boolean incremental = allowIncremental
+                && !productIndex.isFullCrawlDue(AppConfig.getFullCrawlInterval(), crawlStarted);
+        boolean stoppedEarly = false;
+        boolean truncated = false;
+        Set<String> seenLinks = new HashSet<>();
+        List<Page> tabs = openCrawlTabs(AppConfig.getCrawlTabs());
+        logger.info("Starting {} crawl with {} known products using {} tabs", incremental ? "incremental" : "full",
+                productIndex.size(), tabs.size());
 
-                if (rows.isEmpty()) {
-                    logger.info("No more products found on page {}, stopping pagination", currentPage);
-                    hasNextPage = false;
-                    break;
+        try {
+            crawl:
+            while (true) {
+                // Start loading the next batch of listing pages in every tab before reading any of them
+                for (int i = 0; i < tabs.size(); i++) {
+                    startListingNavigation(tabs.get(i), currentPage + i);
                 }
 
-                for (ElementHandle row : rows) {
+                for (Page tab : tabs) {
+                    List<ListingRow> rows;
                     try {
-                        ElementHandle removedTag = row.querySelector(
-                                "span.dropi--tag-red[data-original-title='O anúncio deste produto no Fornecedor foi removido, altere o produto para não exibir em sua loja']");
+                        rows = readListingPage(tab, currentPage);
+                    } catch (TimeoutError e) {
+                        logger.warn("Listing page {} did not show any products, stopping the crawl there: {}",
+                                currentPage, e.getMessage());
+                        truncated = true;
+                        break crawl;
+                    }
+                    if (rows == null) {
+                        break crawl;
+                    }
+                    if (rows.isEmpty()) {
+                        logger.warn("No product rows could be read from listing page {}, stopping the crawl there",
+                                currentPage);
+                        truncated = true;
+                        break crawl;
+                    }
 
-                        if (removedTag != null) {
-                            logger.debug("Skipping removed product");
+                    boolean pageChanged = false;
+                    int newRows = 0;
+                    for (ListingRow row : rows) {
+                        boolean rowChanged = productIndex.observe(row, crawlStarted);
+                        if (!seenLinks.add(row.getDropiLink())) {
+                            logger.debug("Skipping duplicate product {}", row.getDropiLink());
                             continue;
                         }
+                        newRows++;
+                        if (rowChanged) {
+                            pageChanged = true;
+                        }
 
-                        ElementHandle dropiLink = row.waitForSelector(
-                                "a[href^='https://app.dropi.com.br/editar/produto/']",
-                                new ElementHandle.WaitForSelectorOptions().setTimeout(5000));
+                        if (row.isRemoved()) {
+                            logger.debug("Skipping removed product");
+                            continue;
+                        }
 
-                        ElementHandle aliExpressLink = row.waitForSelector(
-                                "a[href^='https://pt.aliexpress.com/item/']",
-                                new ElementHandle.WaitForSelectorOptions().setTimeout(5000));
+                        emitLink(new ProductLinks(row.getDropiLink(), row.getAliExpressLink()), sink);
+                        extractedLinks++;
+                    }
 
-                        if (dropiLink != null && aliExpressLink != null) {
-                            productLinks.add(new ProductLinks(
-                                    dropiLink.getAttribute("href"),
-                                    aliExpressLink.getAttribute("href")));
-                        }
-                    } catch (TimeoutError e) {
-                        logger.error("Timeout while processing row on page {}: {}", currentPage, e.getMessage());
-                        continue;
+                    currentPage++;
+                    // A page repeating rows already read in this crawl (pg=0 and pg=1 list the same
+                    // products) was just observed, so it says nothing about what is new
+                    if (incremental && newRows > 0 && !pageChanged) {
+                        logger.info("Page {} only contains known products, stopping incremental crawl",
+                                currentPage - 1);
+                        stoppedEarly = true;
+                        break crawl;
                     }
-                }
 
-                currentPage++;
-                logger.info("Completed processing page {}, moving to next page", currentPage - 1);
-                page.waitForTimeout(5000);
+                    logger.info("Completed processing page {}, moving to next page", currentPage - 1);
+                }
+                waits.betweenListingPages(page);
             }
         } catch (TimeoutError e) {
             logger.error("Failed to extract product links", e);
             throw e;
+        } finally {
+            for (Page tab : tabs) {
+                if (tab != page) {
+                    tab.close();
+                }
+            }
         }
 
-        logger.info("Completed extracting {} product links from {} pages", productLinks.size(), currentPage);
-        return productLinks;
+        if (stoppedEarly || truncated) {
+            // the rest of the listing was not read: keep its products and update them from the index
+            int knownLinks = 0;
+            for (ProductLinks link : productIndex.getActiveLinks()) {
+                if (seenLinks.add(link.getDropiLink())) {
+                    emitLink(link, sink);
+                    knownLinks++;
+                }
+            }
+            extractedLinks += knownLinks;
+            logger.info("Added {} known product links from the product index", knownLinks);
+        } else {
+            int dropped = productIndex.retainOnly(seenLinks);
+            if (dropped > 0) {
+                logger.info("Removed {} products no longer listed from the product index", dropped);
+            }
+            productIndex.markFullCrawl(crawlStarted);
+        }
+        productIndex.save();
+
+        logger.info("Completed extracting {} product links from {} pages", extractedLinks, currentPage);
+        recordCrawlComplete();
+        return extractedLinks;
     }
 
-    private ProductResponse findProduct(String sku, String aliExpressLink) {
+    /**
+     * Returns the pages used to crawl the listing: the main page plus {@code count - 1} extra tabs
+     * of the same browser context.
+     */
+    private List<Page> openCrawlTabs(int count) {
+        List<Page> tabs = new ArrayList<>();
+        tabs.add(mainPage());
+        for (int i = 1; i < count; i++) {
+            Page tab = context.newPage();
+            tab.setDefaultTimeout(DEFAULT_TIMEOUT);
+            tabs.add(tab);
+        }
+        return tabs;
+    }
+
+    private void startListingNavigation(Page tab, int pageNumber) {
+        String pageUrl = String.format("%s/produtos?&pg=%d", AppConfig.getDropiUrl(), pageNumber);
+        tab.navigate(pageUrl, new Page.NavigateOptions().setWaitUntil(WaitUntilState.COMMIT));
+    }
+
+    /**
+     * Waits for a listing page started by {@link #startListingNavigation} and reads its rows.
+     *
+     * @return the rows of the page, or {@code null} once the empty catalog message shows the end of
+     *         the catalog
+     * @throws TimeoutError if the page shows neither product rows nor that message
+     */
+    private List<ListingRow> readListingPage(Page tab, int pageNumber) {
+        logger.debug("Processing page {}", pageNumber);
+        stepTimer.time("listing-navigate", () -> tab.waitForLoadState(LoadState.LOAD));
+
+        // Either product rows or the empty products message shown after the last page
+        tab.waitForSelector(ListingExtractor.ROW_SELECTOR + ", " + EMPTY_CATALOG_SELECTOR,
+                new Page.WaitForSelectorOptions()
+                        .setState(WaitForSelectorState.VISIBLE)
+                        .setTimeout(DEFAULT_TIMEOUT));
+        if (tab.querySelector(EMPTY_CATALOG_SELECTOR) != null) {
+            logger.info("No more products to process");
+            return null;
+        }
+
+        waits.listingRowsLoaded(tab);
+
+        List<ListingRow> rows = stepTimer.time("listing-extract", () -> ListingExtractor.extractRows(tab));
+        metrics.counter("dropi_listing_rows_total", "Listing rows extracted during the crawl").add(rows.size());
+        logger.debug("Found {} product rows on page {}", rows.size(), pageNumber);
+
+        return rows;
+    }
+
+    private void emitLink(ProductLinks link, Consumer<ProductLinks> sink) {
+        if (checkpointJournal != null) {
+            checkpointJournal.recordLink(link);
+        }
+        sink.accept(link);
+    }
+
+    private void recordCrawlComplete() {
+        if (checkpointJournal != null) {
+            checkpointJournal.recordCrawlComplete();
+        }
+    }
+
+    private boolean isCompleted(ProductLinks link) {
+        return checkpointJournal != null && checkpointJournal.isCompleted(link);
+    }
+
+    /**
+     * Updates the given products, with the worker pool when {@code WORKER_POOL_SIZE} is above one.
+     *
+     * @return the products that failed or were left without every price
+     */
+    public List<ProductLinks> processProductLinks(List<ProductLinks> productLinks) {
         try {
-            Map<String, String> requestMap = Map.of(
-                    "id", sku,
-                    "link", aliExpressLink);
-            String jsonRequest = objectMapper.writeValueAsString(requestMap);
-
-            logger.info("Making API request to: {}", API_URL);
-            logger.debug("Request body: {}", jsonRequest);
-
-            RequestBody body = RequestBody.create(jsonRequest, JSON);
-            okhttp3.Request request = new okhttp3.Request.Builder()
-                    .url(API_URL)
-                    .post(body)
-                    .build();
-
-            try (okhttp3.Response response = httpClient.newCall(request).execute()) {
-                String responseBody = response.body().string();
-                logger.info("Response status: {}", response.code());
-                logger.debug("Response body: {}", responseBody);
-
-                if (!response.isSuccessful()) {
-                    logger.error("API request failed with status: {}", response.code());
-                    logger.error("Error response: {}", responseBody);
-                    throw new IOException("Unexpected response " + response);
-                }
+            return processUncompletedLinks(productLinks);
+        } finally {
+            productIndex.saveIfChanged();
+        }
+    }
 
-                return objectMapper.readValue(responseBody, ProductResponse.class);
+    /**
+     * Keeps the browsers of the worker pool open between runs instead of launching them for every
+     * pool, for a long-running process that updates products over and over. They are closed with
+     * the service.
+     */
+    public void keepWorkerBrowsersWarm() {
+        if (warmWorkerBrowsers == null) {
+            warmWorkerBrowsers = new WorkerBrowsers();
+        }
+    }
+
+    private List<ProductLinks> processUncompletedLinks(List<ProductLinks> productLinks) {
+        if (checkpointJournal != null) {
+            int total = productLinks.size();
+            productLinks = productLinks.stream().filter(link -> !isCompleted(link)).toList();
+            if (productLinks.size() < total) {
+                logger.info("Skipping {} products already completed according to the checkpoint journal",
+                        total - productLinks.size());
             }
-        } catch (IOException e) {
-            logger.error("Error making API request: {}", e.getMessage(), e);
-            return null;
         }
+
+        int poolSize = AppConfig.getWorkerPoolSize();
+        if (poolSize > 1 && productLinks.size() > 1) {
+            logger.info("Processing {} products with a pool of {} pages", productLinks.size(), poolSize);
+            return new ProductWorkerPool(this, poolSize, mainPage().context().storageState(),
+                    AppConfig.getPipelineQueueCapacity(), warmWorkerBrowsers).run(productLinks);
+        }
+
+        return processOnMainPage(productLinks);
     }
 
-    public void processProductLinks(List<ProductLinks> productLinks) {
-        int failedProducts = 0;
-        int maxFailuresAllowed = productLinks.size() / 3; // Allow up to 1/3 of products to fail
+    /**
+     * Updates the given products one after the other on the already open page, without starting
+     * worker browsers, so the first update begins immediately.
+     */
+    public void updateProducts(List<ProductLinks> productLinks) {
+        logger.info("Updating {} requested products", productLinks.size());
+        try {
+            processOnMainPage(productLinks);
+        } finally {
+            productIndex.saveIfChanged();
+        }
+    }
+
+    private List<ProductLinks> processOnMainPage(List<ProductLinks> productLinks) {
+        FailureBudget failureBudget = new FailureBudget(productLinks.size());
+        List<ProductLinks> unfinished = new ArrayList<>();
 
         for (ProductLinks link : productLinks) {
-            boolean processed = false;
-            for (int attempt = 1; attempt <= 3; attempt++) {
-                try {
-                    logger.info("Processing: {} (Attempt {} of 3)", link.getDropiLink(), attempt);
-                    processProduct(link);
-                    processed = true;
-                    break;
-                } catch (TimeoutError e) {
-                    logger.error("Timeout on attempt {} while processing link: {} - {}", 
-                        attempt, link.getDropiLink(), e.getMessage());
-                    if (attempt < 3) {
-                        logger.info("Waiting 30 seconds before retry...");
-                        page.waitForTimeout(30000);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error on attempt {} while processing link: {} - {}", 
-                        attempt, link.getDropiLink(), e.getMessage());
-                    if (attempt < 3) {
-                        logger.info("Waiting 30 seconds before retry...");
-                        page.waitForTimeout(30000);
-                    }
+            ProductOutcome outcome = processWithRetries(this::mainPage, link);
+            if (outcome == ProductOutcome.FAILED || outcome == ProductOutcome.PARTIAL) {
+                unfinished.add(link);
+            }
+            if (outcome == ProductOutcome.FAILED && failureBudget.recordFailure()) {
+                logger.error("Too many failures ({}). Stopping processing.", failureBudget.getFailedProducts());
+                throw new RuntimeException("Too many product processing failures");
+            }
+        }
+
+        if (failureBudget.getFailedProducts() > 0) {
+            logger.warn("Completed with {} failed products out of {}",
+                    failureBudget.getFailedProducts(), productLinks.size());
+        } else {
+            logger.info("Successfully processed all {} products", productLinks.size());
+        }
+        return unfinished;
+    }
+
+    /**
+     * Crawls the product listing and updates products at the same time. Links are streamed from
+     * the crawl into a bounded queue consumed by the worker pool, so the first product is updated
+     * as soon as its listing row is parsed, and the crawl waits whenever the workers fall behind.
+     */
+    public void crawlAndProcessProducts() {
+        crawlAndProcessProducts(AppConfig.isIncrementalCrawlEnabled());
+    }
+
+    private void crawlAndProcessProducts(boolean allowIncremental) {
+        int poolSize = AppConfig.getWorkerPoolSize();
+        logger.info("Starting pipelined crawl with a pool of {} pages", poolSize);
+        ProductWorkerPool pool = new ProductWorkerPool(this, poolSize, mainPage().context().storageState(),
+                AppConfig.getPipelineQueueCapacity(), warmWorkerBrowsers);
+        pool.start();
+
+        try {
+            int extractedLinks = extractProductLinks(link -> {
+                if (!isCompleted(link)) {
+                    pool.submit(link);
                 }
+            }, allowIncremental);
+            logger.info("Crawl finished with {} products queued, waiting for workers", extractedLinks);
+        } catch (RuntimeException e) {
+            if (!pool.isAborted()) {
+                pool.abort();
+                productIndex.saveIfChanged();
+                throw e;
             }
+        }
+        try {
+            pool.finish();
+        } finally {
+            productIndex.saveIfChanged();
+        }
+    }
+
+    /**
+     * Crawls the listing and updates every product found, pipelined when {@code PIPELINE_MODE} is
+     * enabled. Used by the daemon for its scheduled jobs.
+     *
+     * @param allowIncremental whether the crawl may stop at the first page of known products
+     */
+    public void updateCatalog(boolean allowIncremental) {
+        if (AppConfig.isPipelineEnabled()) {
+            crawlAndProcessProducts(allowIncremental);
+            return;
+        }
+        List<ProductLinks> productLinks = new ArrayList<>();
+        extractProductLinks(productLinks::add, allowIncremental);
+        if (productLinks.isEmpty()) {
+            logger.warn("No products found to process");
+            return;
+        }
+        processProductLinks(productLinks);
+    }
+
+    /**
+     * Looks up a product of the last crawls by its {@code editar/produto/} URL. Safe to call from
+     * any thread.
+     *
+     * @return the product links, or {@code null} if the product is unknown or has no AliExpress link
+     */
+    public ProductLinks findKnownProduct(String dropiLink) {
+        return productIndex.getLink(dropiLink);
+    }
 
-            if (!processed) {
-                failedProducts++;
-                logger.error("Failed to process product after 3 attempts: {}", link.getDropiLink());
-                
-                if (failedProducts > maxFailuresAllowed) {
-                    logger.error("Too many failures ({}). Stopping processing.", failedProducts);
-                    throw new RuntimeException("Too many product processing failures");
+    /**
+     * Updates only the products whose prices changed since the feed was last applied. Changes are
+     * matched to products by SKU, as recorded when a product was last processed, or else by
+     * AliExpress link. The prices from the feed are put in the price cache first, so the update
+     * does not look them up again. Changes of products that were never processed are skipped;
+     * the next crawl picks those up.
+     *
+     * <p>The feed cursor is committed after the products were processed, so a run aborted after
+     * too many failures reads the same changes again.
+     *
+     * @return the number of products updated
+     */
+    public int applyPriceChanges(PriceChangeFeed feed) {
+        PriceChangeFeed.Batch batch;
+        try {
+            batch = feed.poll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the price change feed", e);
+        }
+
+        Map<String, ProductLinks> products = new LinkedHashMap<>();
+        int unknown = 0;
+        for (ProductResponse change : batch.changes()) {
+            String sku = change.getSkuId() != null ? change.getSkuId() : change.getId();
+            List<ProductLinks> links = productIndex.findProducts(sku, change.getLink());
+            if (links.isEmpty()) {
+                unknown++;
+                logger.debug("No known product for changed SKU {} ({})", sku, change.getLink());
+                continue;
+            }
+            for (ProductLinks link : links) {
+                if (priceCache != null && sku != null && change.getPrice() > 0) {
+                    priceCache.put(sku, link.getAliExpressLink(), change);
                 }
+                products.putIfAbsent(link.getDropiLink(), link);
             }
+        }
+        logger.info("{} price changes affect {} products ({} changes of unknown products)",
+                batch.changes().size(), products.size(), unknown);
+        metrics.counter("price_changes_total", "Price changes read from the change feed, by whether a product was found",
+                "mapped", "true").add(batch.changes().size() - unknown);
+        metrics.counter("price_changes_total", "Price changes read from the change feed, by whether a product was found",
+                "mapped", "false").add(unknown);
+
+        List<ProductLinks> unfinished = products.isEmpty()
+                ? List.of()
+                : processProductLinks(new ArrayList<>(products.values()));
+        commitIfFinished(feed, batch, unfinished);
+        return products.size();
+    }
 
-            // Add a small delay between products regardless of success/failure
-            page.waitForTimeout(5000);
+    /**
+     * Commits a change batch only if none of its products was left unfinished, so the changes of
+     * a failed product are read again by the next poll instead of being skipped for good. The
+     * products that were updated are opened again along with it.
+     *
+     * @return whether the cursor was moved past the batch
+     */
+    static boolean commitIfFinished(PriceChangeFeed feed, PriceChangeFeed.Batch batch, List<ProductLinks> unfinished) {
+        if (!unfinished.isEmpty()) {
+            logger.warn("{} products affected by price changes were not fully updated, keeping change feed cursor {}",
+                    unfinished.size(), feed.getCursor());
+            return false;
         }
+        feed.commit(batch);
+        return true;
+    }
 
-        if (failedProducts > 0) {
-            logger.warn("Completed with {} failed products out of {}", failedProducts, productLinks.size());
-        } else {
-            logger.info("Successfully processed all {} products", productLinks.size());
+    /**
+     * Processes a single product, retrying up to three times. Every attempt asks for the page
+     * again, so a worker can hand out a fresh one after its previous page crashed.
+     *
+     * @return the outcome of the last attempt, {@link ProductOutcome#FAILED} if every attempt failed
+     */
+    ProductOutcome processWithRetries(Supplier<Page> pages, ProductLinks link) {
+        ProductEvent event = new ProductEvent(link.getDropiLink());
+        ProductOutcome outcome = null;
+        for (int attempt = 1; attempt <= 3 && outcome == null; attempt++) {
+            try {
+                logger.debug("Processing: {} (Attempt {} of 3)", link.getDropiLink(), attempt);
+                event.startAttempt();
+                Page page = pages.get();
+                outcome = stepTimer.time("product", () -> processProduct(page, link, event));
+                stepTimer.recordProduct();
+            } catch (TimeoutError e) {
+                logger.error("Timeout on attempt {} while processing link: {} - {}", 
+                    attempt, link.getDropiLink(), e.getMessage());
+                if (attempt < 3) {
+                    backOff(attempt);
+                }
+            } catch (Exception e) {
+                logger.error("Error on attempt {} while processing link: {} - {}", 
+                    attempt, link.getDropiLink(), e.getMessage());
+                if (attempt < 3) {
+                    backOff(attempt);
+                }
+            }
         }
+
+        if (outcome == null) {
+            logger.error("Failed to process product after 3 attempts: {}", link.getDropiLink());
+            outcome = ProductOutcome.FAILED;
+        }
+        // outside the retries: a journal that cannot be written must stop the run, not repeat a
+        // product that was already saved
+        recordOutcome(link, outcome);
+        event.log(outcome);
+        return outcome;
     }
 
-    private void processProduct(ProductLinks link) {
-        page.navigate(link.getDropiLink());
+    private void backOff(int attempt) {
+        metrics.counter("dropi_product_retries_total", "Product attempts that failed and were retried").increment();
+        long delay = dropiThrottle.backoffMillis(attempt);
+        logger.info("Waiting {} ms before retry...", delay);
+        // a plain sleep: the page may have crashed and will only be replaced on the next attempt
+        stepTimer.time("retry-backoff", () -> sleep(delay));
+    }
 
-        ElementHandle pricesTab = page.waitForSelector(
-                "a#pills-prices-tab[data-toggle='pill'][data-target='#precos']",
-                new Page.WaitForSelectorOptions()
-                        .setState(WaitForSelectorState.VISIBLE)
-                        .setTimeout(DEFAULT_TIMEOUT));
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off", e);
+        }
+    }
 
-        if (pricesTab != null) {
-            pricesTab.click();
+    private void recordOutcome(ProductLinks link, ProductOutcome outcome) {
+        metrics.counter("dropi_products_total", "Products processed, by outcome", "outcome", outcome.name())
+                .increment();
+        if (checkpointJournal != null) {
+            checkpointJournal.recordOutcome(link, outcome);
+        }
+    }
 
-            page.waitForSelector("tr.quantidade-variacoes",
-                    new Page.WaitForSelectorOptions()
-                            .setState(WaitForSelectorState.VISIBLE)
-                            .setTimeout(DEFAULT_TIMEOUT));
+    private ProductOutcome processProduct(Page page, ProductLinks link, ProductEvent event) {
+        boolean changed = false;
+        boolean missingPrice = false;
+        String rulesFingerprint = null;
+        ElementHandle pricesTab = dropiThrottle.call(() -> openPricesTab(page, link));
 
-            page.waitForTimeout(5000);
+        if (pricesTab != null) {
 
             List<ElementHandle> variationRows = page.querySelectorAll("tr.quantidade-variacoes");
+            event.variations(variationRows.size());
+
+            List<String> skus = new ArrayList<>();
+            for (ElementHandle row : variationRows) {
+                ElementHandle skuInput = row.querySelector("input.sku-inputs-verify");
+                if (skuInput != null) {
+                    skus.add(skuInput.getAttribute("value"));
+                }
+            }
+            productIndex.recordSkus(link, skus);
+            Map<String, ProductResponse> prices = stepTimer.time("price-lookup",
+                    () -> priceApiClient.findProducts(skus, link.getAliExpressLink()));
+            Map<String, PriceRule> rules = pricingRules.evaluate(link, prices);
+            rulesFingerprint = PricingRuleEngine.fingerprint(rules);
+            // A variation is only skipped when its sale and promotional prices were computed with
+            // the same rules, so an edited rule table is applied even where costs did not change
+            boolean sameRules = rulesFingerprint.equals(productIndex.getRulesFingerprint(link.getDropiLink()));
+            if (skipUnchanged && !sameRules) {
+                logger.debug("Price rules of {} changed since its last save, recalculating every variation",
+                        link.getDropiLink());
+            }
 
             for (ElementHandle row : variationRows) {
                 ElementHandle skuInput = row.querySelector("input.sku-inputs-verify");
                 if (skuInput != null) {
                     String sku = skuInput.getAttribute("value");
                     link.setSku(sku);
-                    logger.info("Found SKU: {}", sku);
+                    logger.debug("Found SKU: {}", sku);
 
                     String rowId = skuInput.getAttribute("id").replace("sku-custom-", "");
-                    ProductResponse response = findProduct(sku, link.getAliExpressLink());
+                    ProductResponse response = prices.get(sku);
 
                     if (response != null) {
                         double price = response.getPrice() / 100.0;
@@ -272,9 +685,18 @@ public class PlaywrightService implements AutoCloseable {
                         
                         // Set original price in the hidden input
                         ElementHandle originalPriceInput = page.querySelector("#preco-original-modificado-" + rowId);
+                        if (skipUnchanged && sameRules && originalPriceInput != null
+                                && samePrice(originalPriceInput.inputValue(), price)) {
+                            logger.debug("Price for SKU {} already at {}, skipping calculator", sku, formattedPrice);
+                            event.unchanged();
+                            continue;
+                        }
+                        changed = true;
+                        event.changed();
+
                         if (originalPriceInput != null) {
                             originalPriceInput.fill(formattedPrice);
-                            logger.debug("Set original price to: {} in input id: {}", formattedPrice, "preco-original-modificado-" + rowId);
+                            logger.debug("Set original price to: {} in input id: preco-original-modificado-{}", formattedPrice, rowId);
                         } else {
                             logger.error("Could not find original price input for row: {}", rowId);
                         }
@@ -282,9 +704,9 @@ public class PlaywrightService implements AutoCloseable {
                         ElementHandle profitButton = row.querySelector("#lucro-" + rowId);
                         if (profitButton != null) {
                             profitButton.click();
-                            logger.info("Clicked profit calculation button for SKU: {}", sku);
+                            logger.debug("Clicked profit calculation button for SKU: {}", sku);
 
-                            page.waitForTimeout(5000);
+                            waits.calculatorOpened(page);
                             ElementHandle priceInput = page.querySelector("input.valor-produto-aliexpress");
                             ElementHandle marketingInput = page
                                     .querySelector("input.porcentagem-marketing");
@@ -296,21 +718,23 @@ public class PlaywrightService implements AutoCloseable {
                                     marketingInput != null && markupInput != null &&
                                     promoMarkupInput != null) {
 
-                                priceInput.fill(formattedPrice);
-                                logger.info("Updated price to: {}", formattedPrice);
+                                stepTimer.time("calculator-fill", () -> {
+                                    priceInput.fill(formattedPrice);
+                                    logger.debug("Updated price to: {}", formattedPrice);
 
-                                applyPriceRules(priceInput, marketingInput,
-                                        markupInput, promoMarkupInput, price);
+                                    applyPriceRules(marketingInput, markupInput, promoMarkupInput, rules.get(sku));
+                                });
 
-                                page.waitForTimeout(3000);
+                                waits.calculatorFilled(page);
 
                                 ElementHandle applyButton = page
                                         .querySelector("button#aplicarPrecosCalculadora");
                                 if (applyButton != null) {
+                                    String salePriceBefore = waits.salePrice(page, rowId);
                                     applyButton.click();
-                                    logger.info("Clicked apply button to save calculations");
+                                    logger.debug("Clicked apply button to save calculations");
 
-                                    page.waitForTimeout(3000);
+                                    waits.calculatorApplied(page, rowId, salePriceBefore);
                                 } else {
                                     logger.error("Could not find apply button");
                                 }
@@ -318,11 +742,73 @@ public class PlaywrightService implements AutoCloseable {
                         }
                     } else {
                         logger.error("Could not price for product: {}", sku);
+                        event.missingPrice();
+                        missingPrice = true;
                     }
                 }
             }
         }
 
+        if (skipUnchanged && !changed) {
+            logger.debug("Prices unchanged, skipping save for: {}", link.getDropiLink());
+            event.saved("skipped");
+            return missingPrice ? ProductOutcome.PARTIAL : ProductOutcome.UNCHANGED;
+        }
+
+        try {
+            saveSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a save slot", e);
+        }
+        try {
+            if (directSaveClient != null && stepTimer.time("direct-save", () -> directSaveClient.save(page))) {
+                event.saved("direct");
+            } else {
+                saveProduct(page);
+                event.saved("ui");
+            }
+        } finally {
+            saveSlots.release();
+        }
+        if (missingPrice) {
+            return ProductOutcome.PARTIAL;
+        }
+        if (rulesFingerprint != null) {
+            productIndex.recordRulesFingerprint(link, rulesFingerprint);
+        }
+        return ProductOutcome.UPDATED;
+    }
+
+    /**
+     * Opens the product editor and its prices tab. Runs under the Dropi throttle, so its duration
+     * and timeouts adjust how many pages load at the same time.
+     *
+     * @return the prices tab, or {@code null} if the product has none
+     */
+    private ElementHandle openPricesTab(Page page, ProductLinks link) {
+        stepTimer.time("product-navigate", () -> page.navigate(link.getDropiLink()));
+
+        ElementHandle pricesTab = page.waitForSelector(
+                "a#pills-prices-tab[data-toggle='pill'][data-target='#precos']",
+                new Page.WaitForSelectorOptions()
+                        .setState(WaitForSelectorState.VISIBLE)
+                        .setTimeout(DEFAULT_TIMEOUT));
+
+        if (pricesTab != null) {
+            pricesTab.click();
+
+            page.waitForSelector("tr.quantidade-variacoes",
+                    new Page.WaitForSelectorOptions()
+                            .setState(WaitForSelectorState.VISIBLE)
+                            .setTimeout(DEFAULT_TIMEOUT));
+
+            waits.pricesTabLoaded(page);
+        }
+        return pricesTab;
+    }
+
+    private void saveProduct(Page page) {
         ElementHandle mainSaveButton = page.waitForSelector(
                 "button.dropi--btn-primary[data-toggle='modal'][data-target='#atualizarProdutoModal']",
                 new Page.WaitForSelectorOptions()
@@ -331,9 +817,9 @@ public class PlaywrightService implements AutoCloseable {
 
         if (mainSaveButton != null) {
             mainSaveButton.click();
-            logger.info("Clicked main save button");
+            logger.debug("Clicked main save button");
 
-            page.waitForTimeout(8000);
+            waits.saveModalOpened(page);
 
             ElementHandle finalSaveButton = page.waitForSelector(
                     "button.salvarProduto",
@@ -345,14 +831,29 @@ public class PlaywrightService implements AutoCloseable {
                 Page.WaitForURLOptions waitOptions = new Page.WaitForURLOptions()
                         .setTimeout(DEFAULT_TIMEOUT * 2);
 
-                finalSaveButton.click();
-                logger.info("Clicked final save button");
+                Request saveRequest = null;
+                if (directSaveClient != null && directSaveClient.isCapturing()) {
+                    String formTarget = DirectSaveClient.formTarget(page);
+                    try {
+                        saveRequest = page.waitForRequest(
+                                request -> DirectSaveClient.isSaveRequest(request, formTarget), finalSaveButton::click);
+                    } catch (TimeoutError e) {
+                        directSaveClient.captureFailed(e.getMessage());
+                    }
+                } else {
+                    finalSaveButton.click();
+                }
+                logger.debug("Clicked final save button");
+
+                stepTimer.time("save-redirect", () -> page.waitForURL("**/produtos", waitOptions));
+                logger.debug("Navigation completed after save");
 
-                page.waitForURL("**/produtos", waitOptions);
-                logger.info("Navigation completed after save");
+                if (saveRequest != null) {
+                    directSaveClient.capture(saveRequest);
+                }
 
                 page.waitForLoadState();
-                page.waitForTimeout(10000);
+                waits.saveCompleted(page);
             } else {
                 logger.error("Could not find final save button");
             }
@@ -361,55 +862,80 @@ public class PlaywrightService implements AutoCloseable {
         }
     }
 
-    private void applyPriceRules(ElementHandle priceInput, ElementHandle marketingInput,
-            ElementHandle markupInput, ElementHandle promoMarkupInput, double price) {
-        logger.debug("Applying price rules for price: R$ {}", price);
-
-        String marketingPercent;
-        String markupPercent;
-        String promoMarkupPercent;
-        marketingPercent = "2,00";
-
-        if (price <= 100.0) {
-            logger.debug("Applying rules for price range: R$ 1,00 - R$ 100,00");
-            markupPercent = "25,00";
-            promoMarkupPercent = "20,00";
-        } else if (price <= 200.0) {
-            logger.debug("Applying rules for price range: R$ 101,00 - R$ 200,00");
-            markupPercent = "25,00";
-            promoMarkupPercent = "15,00";
-        } else if (price <= 300.0) {
-            logger.debug("Applying rules for price range: R$ 201,00 - R$ 300,00");
-            markupPercent = "20,00";
-            promoMarkupPercent = "15,00";
-        } else if (price <= 400.0) {
-            logger.debug("Applying rules for price range: R$ 301,00 - R$ 400,00");
-            markupPercent = "15,00";
-            promoMarkupPercent = "10,00";
-        } else if (price <= 500.0) {
-            logger.debug("Applying rules for price range: R$ 401,00 - R$ 500,00");
-            markupPercent = "20,00";
-            promoMarkupPercent = "10,00";
-        } else {
-            logger.debug("Applying rules for price range: > R$ 501,00");
-            markupPercent = "15,00";
-            promoMarkupPercent = "10,00";
+    private void applyPriceRules(ElementHandle marketingInput, ElementHandle markupInput,
+            ElementHandle promoMarkupInput, PriceRule rule) {
+        logger.debug("Applying price rules: {}", rule);
+
+        marketingInput.fill(rule.getMarketingPercent());
+        logger.debug("Updated marketing percentage to: {}", rule.getMarketingPercent());
+
+        markupInput.fill(rule.getMarkupPercent());
+        logger.debug("Updated markup multiplier to: {}", rule.getMarkupPercent());
+
+        promoMarkupInput.fill(rule.getPromoMarkupPercent());
+        logger.debug("Updated promotional markup to: {}", rule.getPromoMarkupPercent());
+    }
+
+    /**
+     * Compares a price shown in a Dropi input ("25,00", "1.234,56" or "25.00") with a target price.
+     */
+    static boolean samePrice(String currentValue, double targetPrice) {
+        if (currentValue == null || currentValue.isBlank()) {
+            return false;
+        }
+        String normalized = currentValue.trim().replace("R$", "").trim();
+        if (normalized.contains(",")) {
+            normalized = normalized.replace(".", "").replace(',', '.');
         }
+        try {
+            return Math.abs(Double.parseDouble(normalized) - targetPrice) < 0.005;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 
-        marketingInput.fill(marketingPercent);
-        logger.info("Updated marketing percentage to: {}", marketingPercent);
+    PageWaits getWaits() {
+        return waits;
+    }
 
-        markupInput.fill(markupPercent);
-        logger.info("Updated markup multiplier to: {}", markupPercent);
+    /**
+     * @return the interceptor to install on additional browser contexts, or {@code null} if
+     *         resource blocking is disabled
+     */
+    RequestInterceptor getRequestInterceptor() {
+        return requestInterceptor;
+    }
 
-        promoMarkupInput.fill(promoMarkupPercent);
-        logger.info("Updated promotional markup to: {}", promoMarkupPercent);
+    /**
+     * Writes the price cache, the product index and the metrics snapshot. Safe to call from any
+     * thread, such as a shutdown hook that cannot wait for {@link #close()} on the main thread.
+     */
+    public synchronized void persistState() {
+        metrics.writeSnapshot(AppConfig.getMetricsFile(USER_DATA_DIR));
+        if (priceCache != null) {
+            priceCache.save();
+        }
+        productIndex.saveIfChanged();
     }
 
     @Override
     public void close() {
         logger.info("Closing PlaywrightService resources");
+        stepTimer.logSummary();
+        if (priceCache != null) {
+            priceCache.logStats();
+        }
+        priceApiClient.logStats();
+        dropiThrottle.logStats();
+        metrics.logSummary();
+        if (requestInterceptor != null) {
+            requestInterceptor.logStats();
+        }
+        persistState();
         try {
+            if (warmWorkerBrowsers != null) {
+                warmWorkerBrowsers.close();
+            }
             if (page != null) {
                 page.close();
             }
@@ -0,0 +1,375 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.reconnect.config.AppConfig;
+import com.reconnect.metrics.MetricsRegistry;
+import com.reconnect.model.ProductResponse;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client for the price service {@code /api/products/find} endpoint.
+ *
+ * <p>{@link #findProducts(Collection, String)} looks up all SKUs of a product at once, running
+ * one blocking call per SKU on its own virtual thread, so a product with many variations costs
+ * roughly one round-trip instead of one per variation. The number of requests in flight is set
+ * by an {@link AdaptiveThrottle} from the service's latency and status codes.
+ *
+ * <p>When a {@link PriceCache} is given, fresh cached prices are returned without a request and
+ * successful responses are added to the cache.
+ *
+ * <p>A single slow or failing response must not hold up the browser:
+ * <ul>
+ *     <li>connect, read and whole-call timeouts are set, and idle connections are kept for reuse;</li>
+ *     <li>a request still unanswered after the p95 of recent latencies is duplicated (hedged), and
+ *     the first answer wins; hedges are limited to a tenth of the requests so a slow service is
+ *     not sent twice the load;</li>
+ *     <li>I/O errors, 429 and 5xx responses are retried; the throttle's back-off after an overload
+ *     delays the retry;</li>
+ *     <li>after repeated failures a {@link CircuitBreaker} opens and lookups return {@code null}
+ *     at once, so the run skips the prices instead of waiting for every timeout.</li>
+ * </ul>
+ */
+public class PriceApiClient {
+    private static final Logger logger = LogManager.getLogger(PriceApiClient.class);
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final long BATCH_TIMEOUT_SECONDS = 120;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final double MAX_HEDGE_RATIO = 0.1;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader productReader;
+    private final String apiUrl;
+    private final PriceCache cache;
+    private final VirtualTaskExecutor executor = new VirtualTaskExecutor("price-lookup");
+    private final AdaptiveThrottle throttle;
+    private final CircuitBreaker breaker = new CircuitBreaker("price-api",
+            AppConfig.getPriceApiBreakerFailures(), AppConfig.getPriceApiBreakerOpenMs());
+    private final LatencyTracker latencies = new LatencyTracker(HEDGE_PERCENTILE);
+    private final int maxRetries = AppConfig.getPriceApiRetries();
+    private final long hedgeMinDelayNanos = AppConfig.isPriceApiHedgingEnabled()
+            ? TimeUnit.MILLISECONDS.toNanos(AppConfig.getPriceApiHedgeMinDelayMs())
+            : -1;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public PriceApiClient(String baseUrl) {
+        this(baseUrl, null);
+    }
+
+    public PriceApiClient(String baseUrl, PriceCache cache) {
+        this(new AdaptiveThrottle("price-api", AppConfig.getPriceApiMaxConcurrency(),
+                AppConfig.getPriceApiLatencyTargetMs(), AppConfig.getRetryBackoffBaseMs(),
+                AppConfig.getRetryBackoffMaxMs()), baseUrl, cache);
+    }
+
+    private PriceApiClient(AdaptiveThrottle throttle, String baseUrl, PriceCache cache) {
+        this(new OkHttpClient.Builder()
+                        .connectTimeout(AppConfig.getPriceApiConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                        .readTimeout(AppConfig.getPriceApiReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                        .callTimeout(AppConfig.getPriceApiCallTimeoutMs(), TimeUnit.MILLISECONDS)
+                        // room for a hedge next to every regular request
+                        .connectionPool(new ConnectionPool(2 * AppConfig.getPriceApiMaxConcurrency(), 5, TimeUnit.MINUTES))
+                        .addInterceptor(throttle.interceptor())
+                        .build(),
+                new ObjectMapper(), baseUrl, cache, throttle);
+    }
+
+    PriceApiClient(OkHttpClient httpClient, ObjectMapper objectMapper, String baseUrl, PriceCache cache,
+            AdaptiveThrottle throttle) {
+        this.throttle = throttle;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.productReader = objectMapper.readerFor(ProductResponse.class);
+        this.apiUrl = baseUrl + "/api/products/find";
+        this.cache = cache;
+    }
+
+    OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Looks up a single SKU, blocking until the response arrives.
+     *
+     * @return the product, or {@code null} if the request failed or the circuit breaker is open
+     */
+    public ProductResponse findProduct(String sku, String aliExpressLink) {
+        ProductResponse cached = getCached(sku, aliExpressLink);
+        if (cached != null) {
+            return cached;
+        }
+        if (!breaker.tryAcquire()) {
+            logger.debug("Price service unavailable, skipping SKU {}", sku);
+            return null;
+        }
+
+        long start = System.nanoTime();
+        boolean serviceFailed = true;
+        try {
+            logger.debug("Making API request to: {}", apiUrl);
+            ProductResponse product = executeWithRetries(buildRequest(sku, aliExpressLink));
+            serviceFailed = false;
+            putCached(sku, aliExpressLink, product);
+            recordRequest(start, "success");
+            return product;
+        } catch (StatusException e) {
+            // a 4xx answer means the service is up and rejected this SKU
+            serviceFailed = e.isRetryable();
+            recordRequest(start, "error");
+            logger.error("Price request for SKU {} failed with status {}: {}", sku, e.status, e.getMessage());
+            return null;
+        } catch (IOException e) {
+            recordRequest(start, "error");
+            logger.error("Error making API request for SKU {}: {}", sku, e.getMessage());
+            return null;
+        } finally {
+            if (serviceFailed) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+        }
+    }
+
+    private ProductResponse executeWithRetries(okhttp3.Request request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return execute(request);
+            } catch (IOException e) {
+                boolean retryable = e instanceof StatusException status ? status.isRetryable()
+                        : !(e instanceof JsonProcessingException) && !Thread.currentThread().isInterrupted();
+                if (!retryable || attempt > maxRetries) {
+                    throw e;
+                }
+                retries.increment();
+                MetricsRegistry.global().counter("price_api_retries_total", "Price service requests retried after an error")
+                        .increment();
+                logger.debug("Retrying price request after: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends the request and, once it has been waiting longer than recent requests usually take,
+     * a duplicate of it. Returns the first response; the other call is cancelled.
+     */
+    private ProductResponse execute(okhttp3.Request request) throws IOException {
+        requests.increment();
+        long hedgeAfter = hedgeDelayNanos();
+        if (hedgeAfter <= 0) {
+            return call(httpClient.newCall(request));
+        }
+
+        CompletableFuture<ProductResponse> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger();
+        List<Call> calls = new CopyOnWriteArrayList<>();
+        launch(request, false, first, pending, calls);
+        try {
+            try {
+                return first.get(hedgeAfter, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (hedges.sum() < MAX_HEDGE_RATIO * requests.sum()) {
+                    hedges.increment();
+                    MetricsRegistry.global().counter("price_api_hedges_total", "Duplicate requests sent for slow price lookups")
+                            .increment();
+                    launch(request, true, first, pending, calls);
+                }
+                // the call timeout bounds this wait
+                return first.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the price service");
+        } finally {
+            calls.forEach(Call::cancel);
+        }
+    }
+
+    private void launch(okhttp3.Request request, boolean hedge, CompletableFuture<ProductResponse> first,
+            AtomicInteger pending, List<Call> calls) {
+        Call call = httpClient.newCall(request);
+        calls.add(call);
+        pending.incrementAndGet();
+        executor.submit(() -> {
+            try {
+                if (first.complete(call(call)) && hedge) {
+                    hedgeWins.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                // the lookup only fails once every copy of the request failed
+                if (pending.decrementAndGet() == 0) {
+                    first.completeExceptionally(e);
+                }
+            }
+            return null;
+        });
+    }
+
+    private long hedgeDelayNanos() {
+        if (hedgeMinDelayNanos < 0) {
+            return 0;
+        }
+        long recentPercentile = latencies.getNanos();
+        return recentPercentile > 0 ? Math.max(hedgeMinDelayNanos, recentPercentile) : 0;
+    }
+
+    private ProductResponse call(Call call) throws IOException {
+        long start = System.nanoTime();
+        try (Response response = call.execute()) {
+            ProductResponse product = readResponse(response);
+            latencies.record(System.nanoTime() - start);
+            return product;
+        }
+    }
+
+    /**
+     * Looks up several SKUs of the same AliExpress product concurrently.
+     *
+     * @return the products found, keyed by SKU; SKUs whose request failed are absent
+     */
+    public Map<String, ProductResponse> findProducts(Collection<String> skus, String aliExpressLink) {
+        Set<String> uniqueSkus = new LinkedHashSet<>(skus);
+        uniqueSkus.remove(null);
+        Map<String, ProductResponse> products = new LinkedHashMap<>();
+        if (uniqueSkus.isEmpty()) {
+            return products;
+        }
+
+        logger.debug("Looking up {} SKUs concurrently", uniqueSkus.size());
+        Map<String, Future<ProductResponse>> lookups = new LinkedHashMap<>();
+        for (String sku : uniqueSkus) {
+            lookups.put(sku, executor.submit(() -> findProduct(sku, aliExpressLink)));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BATCH_TIMEOUT_SECONDS);
+        for (Map.Entry<String, Future<ProductResponse>> lookup : lookups.entrySet()) {
+            try {
+                ProductResponse product = lookup.getValue().get(
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (product != null) {
+                    products.put(lookup.getKey(), product);
+                }
+            } catch (TimeoutException e) {
+                logger.error("Timed out waiting for price of SKU {}", lookup.getKey());
+                lookup.getValue().cancel(true);
+            } catch (ExecutionException e) {
+                logger.error("Error looking up price of SKU {}: {}", lookup.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                lookups.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return products;
+    }
+
+    private static void recordRequest(long start, String result) {
+        MetricsRegistry.global().histogram("price_api_request_duration_seconds",
+                "Latency of price service requests, cache hits excluded", "result", result)
+                .observeNanos(System.nanoTime() - start);
+    }
+
+    void logStats() {
+        if (requests.sum() > 0) {
+            logger.info("Price service: {} requests, {} retries, {} hedged ({} answered first), recent p95 {} ms",
+                    requests.sum(), retries.sum(), hedges.sum(), hedgeWins.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(latencies.getNanos()));
+        }
+        breaker.logStats();
+        executor.logStats();
+        if (throttle != null) {
+            throttle.logStats();
+        }
+    }
+
+    private ProductResponse getCached(String sku, String aliExpressLink) {
+        if (cache == null || sku == null) {
+            return null;
+        }
+        ProductResponse cached = cache.get(sku, aliExpressLink);
+        if (cached != null) {
+            logger.debug("Using cached price for SKU: {}", sku);
+        }
+        return cached;
+    }
+
+    private void putCached(String sku, String aliExpressLink, ProductResponse product) {
+        if (cache != null) {
+            cache.put(sku, aliExpressLink, product);
+        }
+    }
+
+    private okhttp3.Request buildRequest(String sku, String aliExpressLink) throws IOException {
+        Map<String, String> requestMap = Map.of(
+                "id", sku,
+                "link", aliExpressLink);
+        String jsonRequest = objectMapper.writeValueAsString(requestMap);
+        logger.debug("Request body: {}", jsonRequest);
+
+        RequestBody body = RequestBody.create(jsonRequest, JSON);
+        return new okhttp3.Request.Builder()
+                .url(apiUrl)
+                .post(body)
+                .build();
+    }
+
+    private ProductResponse readResponse(Response response) throws IOException {
+        logger.debug("Response status: {}", response.code());
+        if (!response.isSuccessful()) {
+            throw new StatusException(response.code(), response.body().string());
+        }
+        return productReader.readValue(response.body().byteStream());
+    }
+
+    /**
+     * A response with an error status. Only 429 and 5xx are worth retrying.
+     */
+    private static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        StatusException(int status, String body) {
+            super("Unexpected response " + status + ": " + body);
+            this.status = status;
+        }
+
+        boolean isRetryable() {
+            return status == 429 || status >= 500;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconnect.model.ProductResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of price lookups keyed by SKU and AliExpress link.
+ *
+ * <p>The time-to-live of an entry follows how long the upstream price has been stable: a price
+ * whose {@code updatedAt} is a week old is kept longer than one that changed an hour ago. The
+ * TTL is half of that age, clamped between the configured minimum and maximum; the maximum wins
+ * when the two overlap, so it always bounds how stale a cached price can be. Entries whose
+ * {@code updatedAt} cannot be parsed get the minimum TTL.
+ *
+ * <p>The cache is written to a JSON snapshot on {@link #save()} and read back by
+ * {@link #load(Path, int, Duration, Duration)}, so a restarted run starts warm.
+ */
+public class PriceCache {
+    private static final Logger logger = LogManager.getLogger(PriceCache.class);
+
+    private final int maxEntries;
+    private final Duration minTtl;
+    private final Duration maxTtl;
+    private final Path snapshotFile;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public PriceCache(Path snapshotFile, int maxEntries, Duration minTtl, Duration maxTtl) {
+        this.snapshotFile = snapshotFile;
+        this.maxEntries = maxEntries;
+        this.minTtl = minTtl;
+        this.maxTtl = maxTtl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > PriceCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache and fills it from the snapshot file, if one exists. Expired entries in the
+     * snapshot are dropped.
+     */
+    public static PriceCache load(Path snapshotFile, int maxEntries, Duration minTtl, Duration maxTtl) {
+        PriceCache cache = new PriceCache(snapshotFile, maxEntries, minTtl, maxTtl);
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return cache;
+        }
+
+        try {
+            List<CacheEntry> snapshot = cache.objectMapper.readValue(snapshotFile.toFile(),
+                    new TypeReference<List<CacheEntry>>() {
+                    });
+            Instant now = Instant.now();
+            int loaded = 0;
+            synchronized (cache) {
+                for (CacheEntry entry : snapshot) {
+                    if (entry.getKey() != null && entry.getProduct() != null && entry.getExpiresAt() > now.toEpochMilli()) {
+                        cache.entries.put(entry.getKey(), entry);
+                        loaded++;
+                    }
+                }
+            }
+            logger.info("Loaded {} cached prices from {}", loaded, snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Could not read price cache snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+        return cache;
+    }
+
+    static String key(String sku, String aliExpressLink) {
+        return sku + "|" + aliExpressLink;
+    }
+
+    /**
+     * @return the cached product, or {@code null} if it is missing or expired
+     */
+    public synchronized ProductResponse get(String sku, String aliExpressLink) {
+        String key = key(sku, aliExpressLink);
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.getExpiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.getProduct();
+    }
+
+    public synchronized void put(String sku, String aliExpressLink, ProductResponse product) {
+        if (sku == null || product == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        CacheEntry entry = new CacheEntry();
+        entry.setKey(key(sku, aliExpressLink));
+        entry.setProduct(product);
+        entry.setExpiresAt(now.plus(ttlFor(product, now)).toEpochMilli());
+        entries.put(entry.getKey(), entry);
+    }
+
+    Duration ttlFor(ProductResponse product, Instant now) {
+        if (product.getUpdatedAt() == null) {
+            return clamp(minTtl);
+        }
+        try {
+            Duration stableFor = Duration.between(Instant.parse(product.getUpdatedAt()), now);
+            return clamp(stableFor.dividedBy(2));
+        } catch (DateTimeParseException e) {
+            return clamp(minTtl);
+        }
+    }
+
+    private Duration clamp(Duration ttl) {
+        Duration atLeastMin = ttl.compareTo(minTtl) < 0 ? minTtl : ttl;
+        return atLeastMin.compareTo(maxTtl) > 0 ? maxTtl : atLeastMin;
+    }
+
+    /**
+     * Writes the current entries to the snapshot file, replacing the previous snapshot atomically.
+     */
+    public void save() {
+        if (snapshotFile == null) {
+            return;
+        }
+        List<CacheEntry> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.values());
+        }
+        try {
+            Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), snapshot);
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved {} cached prices to {}", snapshot.size(), snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Could not write price cache snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public void logStats() {
+        logger.info("Price cache: {} entries, {} hits, {} misses, {} evictions, {} expirations",
+                size(), getHits(), getMisses(), getEvictions(), getExpirations());
+    }
+
+    public static class CacheEntry {
+        private String key;
+        private ProductResponse product;
+        private long expiresAt;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public ProductResponse getProduct() {
+            return product;
+        }
+
+        public void setProduct(ProductResponse product) {
+            this.product = product;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public void setExpiresAt(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
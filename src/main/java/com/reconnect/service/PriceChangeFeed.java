@@ -0,0 +1,229 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.reconnect.config.AppConfig;
+import com.reconnect.model.ProductResponse;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the prices that changed since the last run, so only the affected products are opened in
+ * Dropi instead of the whole catalog. Every change is a price API product ({@code id},
+ * {@code skuId}, {@code link}, {@code price}, {@code updatedAt}), read from one of:
+ * <ul>
+ *     <li>an NDJSON file, one product per line, appended to by the price source; the cursor is
+ *     the byte offset after the last complete line, and the file is read from the start again
+ *     when it becomes shorter than the cursor (truncated or rotated);</li>
+ *     <li>an HTTP endpoint called with {@code ?since=<cursor>}, answering with an array of
+ *     products, or with {@code {"changes": [...], "cursor": ...}}; without an explicit cursor the
+ *     latest {@code updatedAt} of the changes is used.</li>
+ * </ul>
+ *
+ * <p>{@link #poll()} does not move the cursor: the caller {@link #commit(Batch) commits} a batch
+ * once its products were updated, so the changes of an aborted run are read again.
+ */
+public class PriceChangeFeed {
+    private static final Logger logger = LogManager.getLogger(PriceChangeFeed.class);
+    private static final int MAX_BATCH_BYTES = 8 * 1024 * 1024;
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader productReader = objectMapper.readerFor(ProductResponse.class);
+
+    private final Path file;
+    private final String url;
+    private final Path cursorFile;
+    private final OkHttpClient httpClient;
+    private String cursor;
+
+    public PriceChangeFeed(Path file, String url, Path cursorFile) {
+        this.file = file;
+        this.url = url;
+        this.cursorFile = cursorFile;
+        this.httpClient = file == null ? new OkHttpClient() : null;
+        this.cursor = readCursor(cursorFile);
+    }
+
+    /**
+     * @return the feed configured by {@code CHANGE_FEED_FILE} or {@code CHANGE_FEED_URL}, or
+     *         {@code null} if neither is set
+     */
+    public static PriceChangeFeed fromConfig(Path userDataDir) {
+        Path file = AppConfig.getChangeFeedFile();
+        String url = AppConfig.getChangeFeedUrl();
+        if (file == null && url == null) {
+            return null;
+        }
+        return new PriceChangeFeed(file, url, AppConfig.getChangeFeedCursorFile(userDataDir));
+    }
+
+    /**
+     * Reads the changes after the committed cursor.
+     */
+    public Batch poll() throws IOException {
+        Batch batch = file != null ? pollFile() : pollUrl();
+        logger.info("Read {} price changes from {} (cursor {} -> {})",
+                batch.changes().size(), describe(), cursor, batch.nextCursor());
+        return batch;
+    }
+
+    /**
+     * Moves the cursor past a batch and persists it.
+     */
+    public synchronized void commit(Batch batch) {
+        if (batch.nextCursor() == null || batch.nextCursor().equals(cursor)) {
+            return;
+        }
+        cursor = batch.nextCursor();
+        try {
+            Path tempFile = cursorFile.resolveSibling(cursorFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, cursor);
+            Files.move(tempFile, cursorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not save change feed cursor {}: {}", cursorFile, e.getMessage());
+        }
+    }
+
+    public synchronized String getCursor() {
+        return cursor;
+    }
+
+    private Batch pollFile() throws IOException {
+        if (!Files.exists(file)) {
+            logger.debug("Change feed {} does not exist yet", file);
+            return new Batch(List.of(), cursor);
+        }
+        long offset = parseOffset(getCursor());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset) {
+                logger.warn("Change feed {} is shorter than the cursor ({} < {}), reading it from the start",
+                        file, size, offset);
+                offset = 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - offset, MAX_BATCH_BYTES));
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                // read until the buffer is full or the end of the file
+            }
+
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--; // an incomplete last line is read once it is finished
+            }
+            if (end == 0 && buffer.capacity() == MAX_BATCH_BYTES && !buffer.hasRemaining()) {
+                throw new IOException("Change feed line at offset " + offset + " is longer than " + MAX_BATCH_BYTES + " bytes");
+            }
+            List<ProductResponse> changes = new ArrayList<>();
+            int lineStart = 0;
+            for (int i = 0; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    readLine(bytes, lineStart, i - lineStart, changes);
+                    lineStart = i + 1;
+                }
+            }
+            return new Batch(changes, Long.toString(offset + end));
+        }
+    }
+
+    private void readLine(byte[] bytes, int start, int length, List<ProductResponse> changes) {
+        String line = new String(bytes, start, length, StandardCharsets.UTF_8).trim();
+        if (line.isEmpty()) {
+            return;
+        }
+        try {
+            changes.add(productReader.readValue(line));
+        } catch (JsonProcessingException e) {
+            logger.warn("Skipping malformed change feed line: {}", e.getOriginalMessage());
+        }
+    }
+
+    private Batch pollUrl() throws IOException {
+        HttpUrl.Builder requestUrl = HttpUrl.get(url).newBuilder();
+        String since = getCursor();
+        if (since != null) {
+            requestUrl.addQueryParameter("since", since);
+        }
+        Request request = new Request.Builder().url(requestUrl.build()).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() == 204) {
+                return new Batch(List.of(), since);
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("Change feed responded " + response.code());
+            }
+            JsonNode body;
+            try (InputStream in = response.body().byteStream()) {
+                body = objectMapper.readTree(in);
+            }
+
+            JsonNode changesNode = body.isArray() ? body : body.path("changes");
+            List<ProductResponse> changes = new ArrayList<>();
+            String latestUpdatedAt = null;
+            for (JsonNode node : changesNode) {
+                ProductResponse change = objectMapper.treeToValue(node, ProductResponse.class);
+                changes.add(change);
+                if (change.getUpdatedAt() != null
+                        && (latestUpdatedAt == null || change.getUpdatedAt().compareTo(latestUpdatedAt) > 0)) {
+                    latestUpdatedAt = change.getUpdatedAt();
+                }
+            }
+            // the committed cursor may be an opaque server cursor, so it is never compared with timestamps
+            if (body.path("cursor").isValueNode()) {
+                return new Batch(changes, body.path("cursor").asText());
+            }
+            return new Batch(changes, latestUpdatedAt != null ? latestUpdatedAt : since);
+        }
+    }
+
+    private static long parseOffset(String cursor) {
+        try {
+            return cursor != null ? Math.max(0, Long.parseLong(cursor)) : 0;
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring change feed cursor {} that is not a file offset", cursor);
+            return 0;
+        }
+    }
+
+    private static String readCursor(Path cursorFile) {
+        if (cursorFile == null || !Files.exists(cursorFile)) {
+            return null;
+        }
+        try {
+            String cursor = Files.readString(cursorFile).trim();
+            return cursor.isEmpty() ? null : cursor;
+        } catch (IOException e) {
+            logger.warn("Could not read change feed cursor {}: {}", cursorFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private String describe() {
+        return file != null ? file.toString() : url;
+    }
+
+    /**
+     * Changes read by one {@link #poll()}, and the cursor to commit once they are applied.
+     */
+    public record Batch(List<ProductResponse> changes, String nextCursor) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconnect.model.PriceRule;
+import com.reconnect.model.ProductLinks;
+import com.reconnect.model.ProductResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Selects the calculator values (marketing, markup and promotional markup percentages) for a
+ * product price from a table of price tiers.
+ *
+ * <p>The tiers are read from a JSON file, {@code PRICING_RULES_FILE}, or from the bundled
+ * {@code pricing-rules.json}. Each tier applies to prices up to its {@code upTo} bound; the last
+ * tier has no bound and covers every higher price. Overrides replace the whole table for specific
+ * Dropi product ids or for AliExpress links containing a fragment, such as a supplier's store id.
+ *
+ * <p>All values are formatted the way the Dropi calculator expects them ("25,00") when the table
+ * is loaded, so a lookup is a binary search over the tier bounds that returns a shared
+ * {@link PriceRule}, and a whole catalog can be evaluated up front.
+ */
+public class PricingRuleEngine {
+    private static final Logger logger = LogManager.getLogger(PricingRuleEngine.class);
+    private static final String DEFAULT_RESOURCE = "/pricing-rules.json";
+    private static final Locale CALCULATOR_LOCALE = Locale.forLanguageTag("pt-BR");
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final TierTable defaultTable;
+    private final Map<String, TierTable> productOverrides;
+    private final List<Map.Entry<String, TierTable>> linkOverrides;
+
+    private PricingRuleEngine(TierTable defaultTable, Map<String, TierTable> productOverrides,
+            List<Map.Entry<String, TierTable>> linkOverrides) {
+        this.defaultTable = defaultTable;
+        this.productOverrides = productOverrides;
+        this.linkOverrides = linkOverrides;
+    }
+
+    /**
+     * Loads the rules from the given file, or the bundled defaults when {@code file} is {@code null}.
+     *
+     * @throws IllegalArgumentException if the rules cannot be read or are inconsistent
+     */
+    public static PricingRuleEngine load(Path file) {
+        String source = file != null ? file.toString() : DEFAULT_RESOURCE;
+        try (InputStream in = file != null
+                ? Files.newInputStream(file)
+                : PricingRuleEngine.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("resource not found");
+            }
+            PricingRuleEngine engine = fromConfig(objectMapper.readValue(in, Config.class));
+            logger.info("Loaded pricing rules from {} ({} tiers, {} overrides)", source,
+                    engine.defaultTable.rules.length, engine.productOverrides.size() + engine.linkOverrides.size());
+            return engine;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pricing rules in " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    static PricingRuleEngine fromConfig(Config config) {
+        TierTable defaultTable = TierTable.of(config.getMarketingPercent(), config.getTiers());
+        Map<String, TierTable> productOverrides = new HashMap<>();
+        List<Map.Entry<String, TierTable>> linkOverrides = new ArrayList<>();
+        for (RuleOverride override : config.getOverrides()) {
+            TierTable table = TierTable.of(
+                    override.getMarketingPercent() != null ? override.getMarketingPercent() : config.getMarketingPercent(),
+                    override.getTiers() != null ? override.getTiers() : config.getTiers());
+            for (String productId : override.getProductIds()) {
+                productOverrides.put(productId, table);
+            }
+            for (String fragment : override.getLinkContains()) {
+                linkOverrides.add(Map.entry(fragment, table));
+            }
+        }
+        return new PricingRuleEngine(defaultTable, productOverrides, linkOverrides);
+    }
+
+    /**
+     * Returns the default calculator values for a price in reais.
+     */
+    public PriceRule ruleFor(double price) {
+        return defaultTable.ruleFor(price);
+    }
+
+    /**
+     * Returns the calculator values for a price in reais, applying the overrides of the product.
+     */
+    public PriceRule ruleFor(ProductLinks link, double price) {
+        return tableFor(link).ruleFor(price);
+    }
+
+    /**
+     * Evaluates the prices of every variation of a product at once.
+     *
+     * @param prices price service responses keyed by SKU, with prices in cents
+     * @return the calculator values keyed by SKU
+     */
+    public Map<String, PriceRule> evaluate(ProductLinks link, Map<String, ProductResponse> prices) {
+        TierTable table = tableFor(link);
+        Map<String, PriceRule> rules = new LinkedHashMap<>(prices.size() * 2);
+        prices.forEach((sku, response) -> rules.put(sku, table.ruleFor(response.getPrice() / 100.0)));
+        return rules;
+    }
+
+    /**
+     * Evaluates the default rules for a whole catalog of prices in reais.
+     */
+    public PriceRule[] evaluate(double[] prices) {
+        PriceRule[] rules = new PriceRule[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            rules[i] = defaultTable.ruleFor(prices[i]);
+        }
+        return rules;
+    }
+
+    private TierTable tableFor(ProductLinks link) {
+        if (link == null || (productOverrides.isEmpty() && linkOverrides.isEmpty())) {
+            return defaultTable;
+        }
+        TierTable table = productOverrides.get(productId(link.getDropiLink()));
+        if (table != null) {
+            return table;
+        }
+        String aliExpressLink = link.getAliExpressLink();
+        if (aliExpressLink != null) {
+            for (Map.Entry<String, TierTable> override : linkOverrides) {
+                if (aliExpressLink.contains(override.getKey())) {
+                    return override.getValue();
+                }
+            }
+        }
+        return defaultTable;
+    }
+
+    /**
+     * Summarizes the calculator values applied to the SKUs of a product, so a later run can tell
+     * whether the sale and promotional prices it left in Dropi still follow the current rules.
+     *
+     * @return a short hex digest that only depends on the SKUs and their values, not their order
+     */
+    public static String fingerprint(Map<String, PriceRule> rules) {
+        StringBuilder values = new StringBuilder();
+        new TreeMap<>(rules).forEach((sku, rule) -> values.append(sku).append('=')
+                .append(rule.getMarketingPercent()).append('/')
+                .append(rule.getMarkupPercent()).append('/')
+                .append(rule.getPromoMarkupPercent()).append(';'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(values.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Extracts the id from a {@code /editar/produto/{id}} link.
+     */
+    static String productId(String dropiLink) {
+        if (dropiLink == null) {
+            return "";
+        }
+        String path = dropiLink.replaceAll("[?#].*$", "").replaceAll("/+$", "");
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    static String formatPercent(double value) {
+        return String.format(CALCULATOR_LOCALE, "%.2f", value);
+    }
+
+    private static final class TierTable {
+        private final double[] upperBounds;
+        private final PriceRule[] rules;
+
+        private TierTable(double[] upperBounds, PriceRule[] rules) {
+            this.upperBounds = upperBounds;
+            this.rules = rules;
+        }
+
+        static TierTable of(double marketingPercent, List<Tier> tiers) {
+            if (tiers == null || tiers.isEmpty()) {
+                throw new IllegalArgumentException("no price tiers");
+            }
+            List<Tier> sorted = new ArrayList<>(tiers);
+            sorted.sort((a, b) -> Double.compare(bound(a), bound(b)));
+            if (sorted.get(sorted.size() - 1).getUpTo() != null) {
+                throw new IllegalArgumentException("the last tier must not have an upTo bound");
+            }
+
+            String marketing = formatPercent(marketingPercent);
+            double[] upperBounds = new double[sorted.size() - 1];
+            PriceRule[] rules = new PriceRule[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                Tier tier = sorted.get(i);
+                if (i < upperBounds.length) {
+                    if (tier.getUpTo() == null) {
+                        throw new IllegalArgumentException("only the last tier may omit upTo");
+                    }
+                    if (i > 0 && tier.getUpTo() == upperBounds[i - 1]) {
+                        throw new IllegalArgumentException("duplicate tier bound " + tier.getUpTo());
+                    }
+                    upperBounds[i] = tier.getUpTo();
+                }
+                rules[i] = new PriceRule(marketing, formatPercent(tier.getMarkupPercent()),
+                        formatPercent(tier.getPromoMarkupPercent()));
+            }
+            return new TierTable(upperBounds, rules);
+        }
+
+        private static double bound(Tier tier) {
+            return tier.getUpTo() != null ? tier.getUpTo() : Double.POSITIVE_INFINITY;
+        }
+
+        PriceRule ruleFor(double price) {
+            // a price equal to a bound belongs to that tier; a miss returns the first higher bound
+            int index = Arrays.binarySearch(upperBounds, price);
+            return rules[index >= 0 ? index : -index - 1];
+        }
+    }
+
+    public static class Config {
+        private double marketingPercent;
+        private List<Tier> tiers = new ArrayList<>();
+        private List<RuleOverride> overrides = new ArrayList<>();
+
+        public double getMarketingPercent() {
+            return marketingPercent;
+        }
+
+        public void setMarketingPercent(double marketingPercent) {
+            this.marketingPercent = marketingPercent;
+        }
+
+        public List<Tier> getTiers() {
+            return tiers;
+        }
+
+        public void setTiers(List<Tier> tiers) {
+            this.tiers = tiers;
+        }
+
+        public List<RuleOverride> getOverrides() {
+            return overrides;
+        }
+
+        public void setOverrides(List<RuleOverride> overrides) {
+            this.overrides = overrides != null ? overrides : new ArrayList<>();
+        }
+    }
+
+    public static class Tier {
+        private Double upTo;
+        private double markupPercent;
+        private double promoMarkupPercent;
+
+        public Double getUpTo() {
+            return upTo;
+        }
+
+        public void setUpTo(Double upTo) {
+            this.upTo = upTo;
+        }
+
+        public double getMarkupPercent() {
+            return markupPercent;
+        }
+
+        public void setMarkupPercent(double markupPercent) {
+            this.markupPercent = markupPercent;
+        }
+
+        public double getPromoMarkupPercent() {
+            return promoMarkupPercent;
+        }
+
+        public void setPromoMarkupPercent(double promoMarkupPercent) {
+            this.promoMarkupPercent = promoMarkupPercent;
+        }
+    }
+
+    /**
+     * Rules for a set of products. Missing {@code marketingPercent} or {@code tiers} are taken
+     * from the defaults.
+     */
+    public static class RuleOverride {
+        private List<String> productIds = new ArrayList<>();
+        private List<String> linkContains = new ArrayList<>();
+        private Double marketingPercent;
+        private List<Tier> tiers;
+
+        public List<String> getProductIds() {
+            return productIds;
+        }
+
+        public void setProductIds(List<String> productIds) {
+            this.productIds = productIds != null ? productIds : new ArrayList<>();
+        }
+
+        public List<String> getLinkContains() {
+            return linkContains;
+        }
+
+        public void setLinkContains(List<String> linkContains) {
+            this.linkContains = linkContains != null ? linkContains : new ArrayList<>();
+        }
+
+        public Double getMarketingPercent() {
+            return marketingPercent;
+        }
+
+        public void setMarketingPercent(Double marketingPercent) {
+            this.marketingPercent = marketingPercent;
+        }
+
+        public List<Tier> getTiers() {
+            return tiers;
+        }
+
+        public void setTiers(List<Tier> tiers) {
+            this.tiers = tiers;
+        }
+    }
+}
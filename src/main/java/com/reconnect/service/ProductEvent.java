@@ -0,0 +1,68 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductOutcome;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Summary of one processed product, written as a single {@code key=value} line to the
+ * {@code com.reconnect.events} logger (and {@code logs/events.log}) in place of a log line per
+ * browser step. The counters describe the last attempt.
+ */
+class ProductEvent {
+    private static final Logger eventLogger = LogManager.getLogger("com.reconnect.events");
+
+    private final String dropiLink;
+    private final long startNanos = System.nanoTime();
+    private int attempts;
+    private int variations;
+    private int changed;
+    private int unchanged;
+    private int missingPrices;
+    private String save = "none";
+
+    ProductEvent(String dropiLink) {
+        this.dropiLink = dropiLink;
+    }
+
+    void startAttempt() {
+        attempts++;
+        variations = 0;
+        changed = 0;
+        unchanged = 0;
+        missingPrices = 0;
+        save = "none";
+    }
+
+    void variations(int count) {
+        variations = count;
+    }
+
+    void changed() {
+        changed++;
+    }
+
+    void unchanged() {
+        unchanged++;
+    }
+
+    void missingPrice() {
+        missingPrices++;
+    }
+
+    /**
+     * @param mode how the product was saved: {@code direct}, {@code ui} or {@code skipped}
+     */
+    void saved(String mode) {
+        save = mode;
+    }
+
+    void log(ProductOutcome outcome) {
+        eventLogger.info("product={} outcome={} attempts={} variations={} changed={} unchanged={} "
+                        + "missing_prices={} save={} duration_ms={}",
+                dropiLink, outcome, box(attempts), box(variations), box(changed), box(unchanged),
+                box(missingPrices), save, box((System.nanoTime() - startNanos) / 1_000_000));
+    }
+}
@@ -0,0 +1,332 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconnect.model.ListingRow;
+import com.reconnect.model.ProductLinks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persisted index of every product seen in the Dropi listing, keyed by its
+ * {@code editar/produto/} URL. Used by the incremental crawl to recognise listing pages that
+ * contain nothing new.
+ *
+ * <p>The SKUs of a product are added when it is processed, so a price change reported for a SKU
+ * or an AliExpress link can be traced back to the Dropi products to update. The reverse lookups
+ * are rebuilt from the entries on the first lookup after a change. Recorded SKUs are written at
+ * most every {@link #SKU_SAVE_INTERVAL} during a run, so a crashed daemon keeps most of them.
+ */
+public class ProductIndex {
+    private static final Logger logger = LogManager.getLogger(ProductIndex.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final Duration SKU_SAVE_INTERVAL = Duration.ofMinutes(1);
+
+    private final Path file;
+    private Snapshot snapshot = new Snapshot();
+    private Map<String, Set<String>> productsBySku;
+    private Map<String, List<String>> productsByAliExpressLink;
+    private boolean dirty;
+    private Instant lastSaved = Instant.now();
+
+    private ProductIndex(Path file) {
+        this.file = file;
+    }
+
+    public static ProductIndex load(Path file) {
+        ProductIndex index = new ProductIndex(file);
+        if (Files.exists(file)) {
+            try {
+                index.snapshot = objectMapper.readValue(file.toFile(), Snapshot.class);
+                logger.info("Loaded {} known products from {}", index.snapshot.getProducts().size(), file);
+            } catch (IOException e) {
+                logger.warn("Could not read product index {}: {}", file, e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Records a listing row.
+     *
+     * @return {@code true} if the product is new, or its AliExpress link or removed state changed
+     */
+    public synchronized boolean observe(ListingRow row, Instant now) {
+        invalidateLookups();
+        Entry entry = snapshot.getProducts().get(row.getDropiLink());
+        if (entry == null) {
+            entry = new Entry();
+            entry.setAliExpressLink(row.getAliExpressLink());
+            entry.setRemoved(row.isRemoved());
+            entry.setFirstSeen(now.toString());
+            entry.setLastSeen(now.toString());
+            snapshot.getProducts().put(row.getDropiLink(), entry);
+            return true;
+        }
+
+        boolean changed = entry.isRemoved() != row.isRemoved()
+                || (row.getAliExpressLink() != null && !row.getAliExpressLink().equals(entry.getAliExpressLink()));
+        if (row.getAliExpressLink() != null) {
+            entry.setAliExpressLink(row.getAliExpressLink());
+        }
+        entry.setRemoved(row.isRemoved());
+        entry.setLastSeen(now.toString());
+        return changed;
+    }
+
+    /**
+     * @return the known products that are not tagged as removed, in the order they were first seen
+     */
+    public synchronized List<ProductLinks> getActiveLinks() {
+        List<ProductLinks> links = new ArrayList<>();
+        for (Map.Entry<String, Entry> product : snapshot.getProducts().entrySet()) {
+            Entry entry = product.getValue();
+            if (!entry.isRemoved() && entry.getAliExpressLink() != null) {
+                links.add(new ProductLinks(product.getKey(), entry.getAliExpressLink()));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * @return the links of a known product, or {@code null} if it is unknown or has no AliExpress link
+     */
+    public synchronized ProductLinks getLink(String dropiLink) {
+        Entry entry = snapshot.getProducts().get(dropiLink);
+        return entry != null && entry.getAliExpressLink() != null
+                ? new ProductLinks(dropiLink, entry.getAliExpressLink())
+                : null;
+    }
+
+    /**
+     * Records the SKUs found on a product's editor page, replacing the previous ones.
+     */
+    public synchronized void recordSkus(ProductLinks link, Collection<String> skus) {
+        Entry entry = snapshot.getProducts().get(link.getDropiLink());
+        if (entry == null) {
+            entry = new Entry();
+            entry.setAliExpressLink(link.getAliExpressLink());
+            entry.setFirstSeen(Instant.now().toString());
+            entry.setLastSeen(entry.getFirstSeen());
+            snapshot.getProducts().put(link.getDropiLink(), entry);
+        }
+        List<String> newSkus = skus.stream().filter(sku -> sku != null && !sku.isBlank()).distinct().toList();
+        if (!newSkus.equals(entry.getSkus())) {
+            entry.setSkus(new ArrayList<>(newSkus));
+            invalidateLookups();
+            if (Duration.between(lastSaved, Instant.now()).compareTo(SKU_SAVE_INTERVAL) >= 0) {
+                save();
+            }
+        }
+    }
+
+    /**
+     * @return the {@link PricingRuleEngine#fingerprint rules fingerprint} of the last save of a
+     *         product, or {@code null} if none was recorded
+     */
+    public synchronized String getRulesFingerprint(String dropiLink) {
+        Entry entry = snapshot.getProducts().get(dropiLink);
+        return entry != null ? entry.getRulesFingerprint() : null;
+    }
+
+    /**
+     * Records the rules a product's calculator values were last computed with.
+     */
+    public synchronized void recordRulesFingerprint(ProductLinks link, String fingerprint) {
+        Entry entry = snapshot.getProducts().get(link.getDropiLink());
+        if (entry != null && !fingerprint.equals(entry.getRulesFingerprint())) {
+            entry.setRulesFingerprint(fingerprint);
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return the products that have the SKU or are linked to the AliExpress product, excluding
+     *         removed ones; empty if neither is known
+     */
+    public synchronized List<ProductLinks> findProducts(String sku, String aliExpressLink) {
+        if (productsBySku == null) {
+            buildLookups();
+        }
+        Set<String> dropiLinks = new LinkedHashSet<>();
+        if (sku != null) {
+            dropiLinks.addAll(productsBySku.getOrDefault(sku, Set.of()));
+        }
+        if (aliExpressLink != null) {
+            dropiLinks.addAll(productsByAliExpressLink.getOrDefault(aliExpressLink, List.of()));
+        }
+        List<ProductLinks> links = new ArrayList<>();
+        for (String dropiLink : dropiLinks) {
+            Entry entry = snapshot.getProducts().get(dropiLink);
+            if (entry != null && !entry.isRemoved() && entry.getAliExpressLink() != null) {
+                links.add(new ProductLinks(dropiLink, entry.getAliExpressLink()));
+            }
+        }
+        return links;
+    }
+
+    private void buildLookups() {
+        productsBySku = new HashMap<>();
+        productsByAliExpressLink = new HashMap<>();
+        snapshot.getProducts().forEach((dropiLink, entry) -> {
+            entry.getSkus().forEach(sku -> productsBySku.computeIfAbsent(sku, key -> new LinkedHashSet<>())
+                    .add(dropiLink));
+            if (entry.getAliExpressLink() != null) {
+                productsByAliExpressLink.computeIfAbsent(entry.getAliExpressLink(), link -> new ArrayList<>())
+                        .add(dropiLink);
+            }
+        });
+    }
+
+    private void invalidateLookups() {
+        productsBySku = null;
+        productsByAliExpressLink = null;
+        dirty = true;
+    }
+
+    /**
+     * Writes the index if products or SKUs were recorded since it was loaded or last saved.
+     */
+    public synchronized void saveIfChanged() {
+        if (dirty) {
+            save();
+        }
+    }
+
+    /**
+     * Drops products that were not seen by a full crawl, since they no longer exist in Dropi.
+     */
+    public synchronized int retainOnly(Set<String> seenDropiLinks) {
+        invalidateLookups();
+        int before = snapshot.getProducts().size();
+        snapshot.getProducts().keySet().retainAll(seenDropiLinks);
+        return before - snapshot.getProducts().size();
+    }
+
+    public synchronized boolean isFullCrawlDue(Duration interval, Instant now) {
+        if (snapshot.getLastFullCrawl() == null || snapshot.getProducts().isEmpty()) {
+            return true;
+        }
+        try {
+            return Instant.parse(snapshot.getLastFullCrawl()).plus(interval).isBefore(now);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    public synchronized void markFullCrawl(Instant now) {
+        snapshot.setLastFullCrawl(now.toString());
+    }
+
+    public synchronized int size() {
+        return snapshot.getProducts().size();
+    }
+
+    public synchronized void save() {
+        try {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), snapshot);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            lastSaved = Instant.now();
+            logger.info("Saved {} known products to {}", snapshot.getProducts().size(), file);
+        } catch (IOException e) {
+            logger.warn("Could not write product index {}: {}", file, e.getMessage());
+        }
+    }
+
+    public static class Snapshot {
+        private String lastFullCrawl;
+        private Map<String, Entry> products = new LinkedHashMap<>();
+
+        public String getLastFullCrawl() {
+            return lastFullCrawl;
+        }
+
+        public void setLastFullCrawl(String lastFullCrawl) {
+            this.lastFullCrawl = lastFullCrawl;
+        }
+
+        public Map<String, Entry> getProducts() {
+            return products;
+        }
+
+        public void setProducts(Map<String, Entry> products) {
+            this.products = new LinkedHashMap<>(products);
+        }
+    }
+
+    public static class Entry {
+        private String aliExpressLink;
+        private String firstSeen;
+        private String lastSeen;
+        private boolean removed;
+        private List<String> skus = new ArrayList<>();
+        private String rulesFingerprint;
+
+        public String getAliExpressLink() {
+            return aliExpressLink;
+        }
+
+        public void setAliExpressLink(String aliExpressLink) {
+            this.aliExpressLink = aliExpressLink;
+        }
+
+        public String getFirstSeen() {
+            return firstSeen;
+        }
+
+        public void setFirstSeen(String firstSeen) {
+            this.firstSeen = firstSeen;
+        }
+
+        public String getLastSeen() {
+            return lastSeen;
+        }
+
+        public void setLastSeen(String lastSeen) {
+            this.lastSeen = lastSeen;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        public void setRemoved(boolean removed) {
+            this.removed = removed;
+        }
+
+        public List<String> getSkus() {
+            return skus;
+        }
+
+        public void setSkus(List<String> skus) {
+            this.skus = skus != null ? skus : new ArrayList<>();
+        }
+
+        public String getRulesFingerprint() {
+            return rulesFingerprint;
+        }
+
+        public void setRulesFingerprint(String rulesFingerprint) {
+            this.rulesFingerprint = rulesFingerprint;
+        }
+    }
+}
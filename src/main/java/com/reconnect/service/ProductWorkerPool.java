@@ -0,0 +1,245 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductLinks;
+import com.reconnect.model.ProductOutcome;
+import com.reconnect.service.WorkerBrowsers.WorkerBrowser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processes products with several browser pages at once. Every worker takes links from a
+ * shared bounded queue and runs the same retry loop as the single-page mode.
+ *
+ * <p>Links can either be handed over as a complete list through {@link #run(List)} or streamed
+ * while the catalog is still being crawled: {@link #start()}, then {@link #submit(ProductLinks)}
+ * for every link and {@link #finish()} once the producer is done. {@code submit} blocks while the
+ * queue is full, so a slow processing stage holds back the crawl feeding it.
+ *
+ * <p>Playwright objects must only be used by one thread at a time, so each worker owns its own
+ * Playwright driver and {@link ManagedBrowserContext}. Without {@link WorkerBrowsers} every run
+ * launches and closes them; with it, the browsers of finished workers are kept for the next run. The contexts are seeded with the
+ * storage state of the persistent {@code browser-data} context, which keeps the authenticated Dropi
+ * session, and are replaced after {@code CONTEXT_RECYCLE_AFTER} products, when their heap grows
+ * past {@code CONTEXT_MAX_HEAP_MB} or when their page crashes. The latest session of any worker is
+ * shared with the contexts opened after it.
+ * Workers run on virtual threads: they spend nearly all their time waiting on the browser and
+ * the price API, and each still drives a single page, so page access stays serialized.
+ */
+class ProductWorkerPool {
+    private static final Logger logger = LogManager.getLogger(ProductWorkerPool.class);
+    private static final long POLL_INTERVAL_MS = 500;
+
+    private final PlaywrightService service;
+    private final int poolSize;
+    private final WorkerBrowsers warmBrowsers;
+    private final AtomicReference<String> storageState;
+    private final BlockingQueue<ProductLinks> queue;
+    private final FailureBudget failureBudget = new FailureBudget();
+    private final AtomicBoolean aborted = new AtomicBoolean(false);
+    private final AtomicReference<RuntimeException> workerError = new AtomicReference<>();
+    private final AtomicInteger processedProducts = new AtomicInteger();
+    private final List<ProductLinks> unfinishedProducts = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean producerDone = false;
+
+    /**
+     * @param warmBrowsers where workers take browsers from and return them to, or null to launch a
+     *                     new browser for every worker and close it when the pool finishes
+     */
+    ProductWorkerPool(PlaywrightService service, int poolSize, String storageState, int queueCapacity,
+            WorkerBrowsers warmBrowsers) {
+        this.service = service;
+        this.warmBrowsers = warmBrowsers;
+        this.poolSize = poolSize;
+        this.storageState = new AtomicReference<>(storageState);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    /**
+     * @return the products that failed or were left without every price, see {@link #getUnfinishedProducts()}
+     */
+    List<ProductLinks> run(List<ProductLinks> productLinks) {
+        failureBudget.recordSubmitted(productLinks.size());
+        start(Math.min(poolSize, productLinks.size()));
+        try {
+            for (ProductLinks link : productLinks) {
+                enqueue(link);
+            }
+        } catch (RuntimeException e) {
+            if (!isAborted()) {
+                abort();
+                throw e;
+            }
+        }
+        finish();
+        return getUnfinishedProducts();
+    }
+
+    /**
+     * @return the products whose outcome was {@link ProductOutcome#FAILED} or
+     *         {@link ProductOutcome#PARTIAL}, so a caller can hand them to another attempt
+     */
+    List<ProductLinks> getUnfinishedProducts() {
+        synchronized (unfinishedProducts) {
+            return new ArrayList<>(unfinishedProducts);
+        }
+    }
+
+    void start() {
+        start(poolSize);
+    }
+
+    private void start(int workers) {
+        logger.info("Starting {} product workers", workers);
+        for (int i = 0; i < workers; i++) {
+            int workerId = i + 1;
+            Thread thread = Thread.ofVirtual().name("product-worker-" + workerId).start(() -> {
+                try {
+                    runWorker(workerId);
+                } catch (RuntimeException e) {
+                    logger.error("Worker {} stopped unexpectedly: {}", workerId, e.getMessage(), e);
+                    workerError.compareAndSet(null, e);
+                    aborted.set(true);
+                }
+            });
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Hands a link to the workers, blocking while the queue is full.
+     *
+     * @throws RuntimeException if the pool was aborted because of too many failures or a worker error
+     */
+    void submit(ProductLinks link) {
+        failureBudget.recordSubmitted(1);
+        enqueue(link);
+    }
+
+    private void enqueue(ProductLinks link) {
+        try {
+            while (!queue.offer(link, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (aborted.get()) {
+                    throw new RuntimeException("Product workers stopped, no longer accepting products");
+                }
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing product", e);
+        }
+    }
+
+    boolean isAborted() {
+        return aborted.get();
+    }
+
+    /**
+     * Stops the workers without waiting for the queued products to be processed.
+     */
+    void abort() {
+        aborted.set(true);
+        producerDone = true;
+        joinWorkers();
+    }
+
+    /**
+     * Signals that no more links will be submitted and waits for the workers to drain the queue.
+     */
+    void finish() {
+        producerDone = true;
+        joinWorkers();
+
+        if (failureBudget.isExceeded()) {
+            logger.error("Too many failures ({}). Stopping processing.", failureBudget.getFailedProducts());
+            throw new RuntimeException("Too many product processing failures");
+        }
+        if (workerError.get() != null) {
+            throw workerError.get();
+        }
+
+        if (failureBudget.getFailedProducts() > 0) {
+            logger.warn("Completed with {} failed products out of {}",
+                    failureBudget.getFailedProducts(), failureBudget.getSubmittedProducts());
+        } else {
+            logger.info("Successfully processed all {} products", processedProducts.get());
+        }
+    }
+
+    private void joinWorkers() {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                aborted.set(true);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for product workers", e);
+            }
+        }
+    }
+
+    private ProductLinks nextLink() {
+        try {
+            while (!aborted.get()) {
+                ProductLinks link = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (link != null) {
+                    return link;
+                }
+                if (producerDone && queue.isEmpty()) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void runWorker(int workerId) {
+        String name = "Worker " + workerId;
+        WorkerBrowser browser;
+        if (warmBrowsers != null) {
+            browser = warmBrowsers.take(name, storageState, service);
+        } else {
+            logger.info("{} launching browser", name);
+            browser = WorkerBrowsers.launch(name, storageState, service);
+        }
+        boolean reusable = false;
+        try {
+            ManagedBrowserContext browserContext = browser.context();
+            ProductLinks link;
+            while ((link = nextLink()) != null) {
+                ProductOutcome outcome = service.processWithRetries(browserContext::page, link);
+                browserContext.productDone();
+                if (outcome == ProductOutcome.FAILED || outcome == ProductOutcome.PARTIAL) {
+                    unfinishedProducts.add(link);
+                }
+                if (outcome != ProductOutcome.FAILED) {
+                    processedProducts.incrementAndGet();
+                } else if (failureBudget.recordFailure()) {
+                    aborted.set(true);
+                    break;
+                }
+            }
+            logger.info("Worker {} finished after {} context replacements", workerId, browserContext.getRecycles());
+            reusable = true;
+        } finally {
+            if (reusable && warmBrowsers != null) {
+                warmBrowsers.release(browser);
+            } else {
+                browser.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Response;
+import com.microsoft.playwright.Route;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blocks requests the automation does not need, such as images, fonts and third-party trackers,
+ * through {@link BrowserContext#route}. Rules are checked in order:
+ * <ol>
+ *     <li>URLs containing an allowed pattern are always loaded;</li>
+ *     <li>requests of a blocked resource type are aborted;</li>
+ *     <li>URLs containing a blocked pattern are aborted.</li>
+ * </ol>
+ * Blocked requests are counted per rule. A blocked request never reaches the network, so its
+ * size is unknown; instead the {@code Content-Length} of the responses loaded is counted per
+ * resource type, which shows the page weight left after blocking and can be compared with a run
+ * without blocking. The length is read from the headers sent with the response event, because
+ * asking the driver for exact sizes costs a round-trip per request; responses without the header
+ * (chunked) are only counted.
+ *
+ * <p>One instance can be installed on several contexts; its counters are thread-safe.
+ */
+class RequestInterceptor {
+    private static final Logger logger = LogManager.getLogger(RequestInterceptor.class);
+
+    private final Set<String> blockedResourceTypes;
+    private final List<String> blockedUrlPatterns;
+    private final List<String> allowedUrlPatterns;
+    private final Map<String, LongAdder> blockedRequests = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> loadedRequests = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> loadedBytes = new ConcurrentHashMap<>();
+    private final LongAdder unsizedResponses = new LongAdder();
+
+    RequestInterceptor(Set<String> blockedResourceTypes, List<String> blockedUrlPatterns,
+            List<String> allowedUrlPatterns) {
+        this.blockedResourceTypes = blockedResourceTypes;
+        this.blockedUrlPatterns = blockedUrlPatterns;
+        this.allowedUrlPatterns = allowedUrlPatterns;
+    }
+
+    void install(BrowserContext context) {
+        context.route("**/*", this::handle);
+        context.onResponse(this::recordLoaded);
+    }
+
+    private void handle(Route route) {
+        String rule = matchBlockRule(route.request());
+        if (rule == null) {
+            route.resume();
+            return;
+        }
+        blockedRequests.computeIfAbsent(rule, k -> new LongAdder()).increment();
+        route.abort("blockedbyclient");
+    }
+
+    /**
+     * @return the name of the rule blocking the request, or {@code null} if it may be loaded
+     */
+    String matchBlockRule(Request request) {
+        return matchBlockRule(request.url(), request.resourceType());
+    }
+
+    String matchBlockRule(String url, String resourceType) {
+        for (String pattern : allowedUrlPatterns) {
+            if (url.contains(pattern)) {
+                return null;
+            }
+        }
+        if (blockedResourceTypes.contains(resourceType)) {
+            return "type:" + resourceType;
+        }
+        for (String pattern : blockedUrlPatterns) {
+            if (url.contains(pattern)) {
+                return "url:" + pattern;
+            }
+        }
+        return null;
+    }
+
+    private void recordLoaded(Response response) {
+        String resourceType = response.request().resourceType();
+        loadedRequests.computeIfAbsent(resourceType, k -> new LongAdder()).increment();
+        String contentLength = response.headers().get("content-length");
+        if (contentLength == null) {
+            unsizedResponses.increment();
+            return;
+        }
+        try {
+            loadedBytes.computeIfAbsent(resourceType, k -> new LongAdder())
+                    .add(Math.max(0, Long.parseLong(contentLength.trim())));
+        } catch (NumberFormatException e) {
+            unsizedResponses.increment();
+        }
+    }
+
+    long getBlockedRequests() {
+        return blockedRequests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    void logStats() {
+        if (blockedRequests.isEmpty() && loadedRequests.isEmpty()) {
+            return;
+        }
+        logger.info("Request interception: {} requests blocked", getBlockedRequests());
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(blockedRequests).entrySet()) {
+            logger.info("  blocked by {}: {} requests", entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(loadedRequests).entrySet()) {
+            LongAdder bytes = loadedBytes.get(entry.getKey());
+            logger.info("  loaded {}: {} requests, {} KB", entry.getKey(), entry.getValue().sum(),
+                    bytes != null ? bytes.sum() / 1024 : 0);
+        }
+        if (unsizedResponses.sum() > 0) {
+            logger.info("  {} responses had no Content-Length and are not in the sizes above", unsizedResponses.sum());
+        }
+    }
+}
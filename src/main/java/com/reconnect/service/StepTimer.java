@@ -0,0 +1,84 @@
+package com.reconnect.service;
+
+import com.reconnect.metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Accumulates wall-clock time per named step so runs with fixed sleeps and runs with
+ * condition-driven waits can be compared per product. Safe to share between workers.
+ *
+ * <p>Every step is also observed in the {@code dropi_step_duration_seconds} histogram of the
+ * metrics registry, labelled with the step name.
+ */
+class StepTimer {
+    private static final Logger logger = LogManager.getLogger(StepTimer.class);
+
+    private final Map<String, LongAdder> totalNanos = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder products = new LongAdder();
+    private final MetricsRegistry metrics;
+
+    StepTimer() {
+        this(MetricsRegistry.global());
+    }
+
+    StepTimer(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    void time(String step, Runnable action) {
+        time(step, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    <T> T time(String step, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(step, System.nanoTime() - start);
+        }
+    }
+
+    void record(String step, long nanos) {
+        totalNanos.computeIfAbsent(step, k -> new LongAdder()).add(nanos);
+        counts.computeIfAbsent(step, k -> new LongAdder()).increment();
+        metrics.histogram("dropi_step_duration_seconds", "Time spent in each automation step", "step", step)
+                .observeNanos(nanos);
+    }
+
+    void recordProduct() {
+        products.increment();
+    }
+
+    void logSummary() {
+        long productCount = products.sum();
+        if (totalNanos.isEmpty()) {
+            return;
+        }
+
+        logger.info("Step timing summary for {} products", productCount);
+        long waitNanos = 0;
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(totalNanos).entrySet()) {
+            long nanos = entry.getValue().sum();
+            long calls = counts.get(entry.getKey()).sum();
+            logger.info("  {}: {} calls, {} ms total, {} ms avg", entry.getKey(), calls,
+                    nanos / 1_000_000, calls > 0 ? nanos / calls / 1_000_000 : 0);
+            if (entry.getKey().startsWith("wait.")) {
+                waitNanos += nanos;
+            }
+        }
+        if (productCount > 0) {
+            logger.info("Average time spent waiting per product: {} ms", waitNanos / productCount / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.reconnect.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs blocking tasks, such as HTTP calls, on virtual threads, one thread per task. Besides the
+ * executor it keeps the numbers needed to check that concurrency goes up without adding platform
+ * threads: tasks run, peak concurrent tasks, time spent inside tasks, and the JVM platform thread
+ * count.
+ */
+public class VirtualTaskExecutor implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(VirtualTaskExecutor.class);
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final ExecutorService executor;
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicInteger peakActiveTasks = new AtomicInteger();
+
+    public VirtualTaskExecutor(String name) {
+        this.name = name;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(() -> {
+            peakActiveTasks.accumulateAndGet(activeTasks.incrementAndGet(), Math::max);
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                activeTasks.decrementAndGet();
+                completedTasks.increment();
+            }
+        });
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    public int getPeakActiveTasks() {
+        return peakActiveTasks.get();
+    }
+
+    public void logStats() {
+        if (completedTasks.sum() == 0) {
+            return;
+        }
+        // ThreadMXBean only reports platform threads, virtual threads are not included
+        logger.info("{} executor: {} tasks, peak {} concurrent, {} ms spent in tasks; "
+                        + "{} platform threads live, {} peak",
+                name, completedTasks.sum(), peakActiveTasks.get(), busyNanos.sum() / 1_000_000,
+                threadMXBean.getThreadCount(), threadMXBean.getPeakThreadCount());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.PlaywrightException;
+import com.reconnect.config.AppConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the Playwright drivers and browsers of finished {@link ProductWorkerPool} workers so the
+ * next pool can reuse them instead of launching Chromium again. Used by the daemon, where a pool
+ * is built for every crawl job.
+ *
+ * <p>A browser is only ever used by one worker at a time. It is handed from the worker that
+ * released it to the one that takes it through a {@link BlockingQueue}, which orders every access
+ * of the first thread before those of the second, as Playwright requires when an object moves
+ * between threads.
+ */
+class WorkerBrowsers implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WorkerBrowsers.class);
+
+    private final BlockingQueue<WorkerBrowser> idle = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * A worker's Playwright driver together with the browser context opened on it.
+     */
+    record WorkerBrowser(Playwright playwright, ManagedBrowserContext context) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            try {
+                context.close();
+            } finally {
+                playwright.close();
+            }
+        }
+    }
+
+    /**
+     * Returns an idle browser, now sharing the given session, or launches a new one if none is left.
+     */
+    WorkerBrowser take(String name, AtomicReference<String> storageState, PlaywrightService service) {
+        WorkerBrowser browser = idle.poll();
+        if (browser != null) {
+            logger.info("{} reusing a warm browser", name);
+            browser.context().shareStorageState(storageState);
+            return browser;
+        }
+        logger.info("{} launching browser", name);
+        return launch(name, storageState, service);
+    }
+
+    static WorkerBrowser launch(String name, AtomicReference<String> storageState, PlaywrightService service) {
+        Playwright playwright = Playwright.create();
+        return new WorkerBrowser(playwright, new ManagedBrowserContext(name, playwright, storageState,
+                service.getRequestInterceptor(), AppConfig.getContextRecycleAfter(),
+                AppConfig.getContextMaxHeapMb() * 1024L * 1024L));
+    }
+
+    /**
+     * Keeps a healthy browser for the next pool, or closes it if the service is already closing.
+     */
+    void release(WorkerBrowser browser) {
+        if (closed) {
+            browser.close();
+            return;
+        }
+        idle.add(browser);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        WorkerBrowser browser;
+        while ((browser = idle.poll()) != null) {
+            try {
+                browser.close();
+            } catch (PlaywrightException e) {
+                logger.warn("Error closing worker browser: {}", e.getMessage());
+            }
+        }
+    }
+}
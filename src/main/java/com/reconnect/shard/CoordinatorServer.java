@@ -0,0 +1,134 @@
+package com.reconnect.shard;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front of a {@link ShardStore}, used by {@link ShardWorker}s on the same or other hosts:
+ * <ul>
+ *     <li>{@code POST /shards/claim} {@code {"worker": ...}} leases a shard: 200 with the shard,
+ *     204 if none is pending right now, 410 once the run is finished;</li>
+ *     <li>{@code POST /shards/{id}/renew}, {@code /ack} and {@code /release} with
+ *     {@code {"lease": ...}}: 200, or 409 if the lease is no longer held. An acknowledgement may
+ *     list the {@code editar/produto/} URLs of products that failed in {@code "failed"}; those are
+ *     handed out again;</li>
+ *     <li>{@code GET /status} returns the shard counts and the current leases.</li>
+ * </ul>
+ */
+public class CoordinatorServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(CoordinatorServer.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ShardStore store;
+
+    public CoordinatorServer(String host, int port, ShardStore store) throws IOException {
+        this.store = store;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.server.createContext("/shards/", this::handleShards);
+        this.server.createContext("/status", this::handleStatus);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.start();
+        logger.info("Coordinating shards on http://{}:{}", host, server.getAddress().getPort());
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            send(exchange, 200, store.status());
+        }
+    }
+
+    private void handleShards(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = objectMapper.readTree(in);
+            } catch (IOException e) {
+                send(exchange, 400, Map.of("error", "Invalid JSON: " + e.getMessage()));
+                return;
+            }
+
+            String[] path = exchange.getRequestURI().getPath().substring("/shards/".length()).split("/");
+            if (path.length == 1 && path[0].equals("claim")) {
+                claim(exchange, request.path("worker").asText("unknown"));
+                return;
+            }
+            if (path.length != 2 || !path[0].matches("\\d+")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            int shardId = Integer.parseInt(path[0]);
+            String lease = request.path("lease").asText("");
+            boolean held = switch (path[1]) {
+                case "renew" -> store.renew(shardId, lease, Instant.now());
+                case "ack" -> store.acknowledge(shardId, lease, failedLinks(request));
+                case "release" -> store.release(shardId, lease, request.path("error").asText("released"));
+                default -> {
+                    exchange.sendResponseHeaders(404, -1);
+                    yield true;
+                }
+            };
+            if (exchange.getResponseCode() == -1) {
+                send(exchange, held ? 200 : 409, Map.of("shard", shardId, "held", held));
+            }
+        }
+    }
+
+    private void claim(HttpExchange exchange, String worker) throws IOException {
+        ShardStore.Shard shard = store.claim(worker, Instant.now());
+        if (shard != null) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", shard.getId());
+            response.put("lease", shard.getLease());
+            response.put("leaseExpiresAt", shard.getLeaseExpiresAt());
+            response.put("links", shard.getLinks());
+            send(exchange, 200, response);
+        } else {
+            exchange.sendResponseHeaders(store.isFinished() ? 410 : 204, -1);
+        }
+    }
+
+    private static Set<String> failedLinks(JsonNode request) {
+        Set<String> links = new HashSet<>();
+        request.path("failed").forEach(link -> links.add(link.asText()));
+        return links;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
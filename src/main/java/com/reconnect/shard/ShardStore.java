@@ -0,0 +1,462 @@
+package com.reconnect.shard;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconnect.model.ProductLinks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Coordinator state of a sharded run: the crawled product links split into shards of a fixed
+ * size, and the lease of every shard handed to a worker.
+ *
+ * <p>A shard is {@code PENDING} until a worker claims it, {@code LEASED} until that worker
+ * acknowledges it ({@code DONE}) or releases it after an error, and goes back to
+ * {@code PENDING} when its lease expires without being renewed, so the shards of a dead worker
+ * are picked up by another one. A worker that acknowledges a shard with failed products only
+ * completes the others: the shard keeps the failed products and goes back to {@code PENDING}. A
+ * shard that was leased {@code maxAttempts} times without being fully acknowledged is marked
+ * {@code FAILED}. Every lease carries a random token; renewals and
+ * acknowledgements with the token of an older lease are rejected.
+ *
+ * <p>The state is written to a JSON file after every change, so a restarted coordinator
+ * continues where it stopped. Shards are filled while the catalog is still being crawled, and
+ * workers can claim the first ones before the crawl ends.
+ */
+public class ShardStore {
+    private static final Logger logger = LogManager.getLogger(ShardStore.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public static final String PENDING = "PENDING";
+    public static final String LEASED = "LEASED";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private final Path file;
+    private final int shardSize;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final Set<String> knownLinks = new HashSet<>();
+    private final List<Link> openShard = new ArrayList<>();
+    private Snapshot snapshot = new Snapshot();
+
+    private ShardStore(Path file, int shardSize, Duration leaseDuration, int maxAttempts) {
+        this.file = file;
+        this.shardSize = shardSize;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Opens the state of an unfinished run, or starts a new one if the file does not exist or
+     * belongs to a finished run.
+     */
+    public static ShardStore open(Path file, int shardSize, Duration leaseDuration, int maxAttempts) {
+        ShardStore store = new ShardStore(file, shardSize, leaseDuration, maxAttempts);
+        if (Files.exists(file)) {
+            try {
+                Snapshot snapshot = objectMapper.readValue(file.toFile(), Snapshot.class);
+                if (!snapshot.isFinished()) {
+                    store.snapshot = snapshot;
+                    snapshot.getShards().forEach(shard ->
+                            shard.getLinks().forEach(link -> store.knownLinks.add(link.getDropiLink())));
+                    logger.info("Resuming sharded run with {} shards ({} done)",
+                            snapshot.getShards().size(), store.count(DONE));
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read shard state {}: {}", file, e.getMessage());
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Adds a crawled link to the shard being filled. Links already in a shard are ignored, so a
+     * crawl can be retried or resumed.
+     */
+    public synchronized void add(ProductLinks link) {
+        if (!knownLinks.add(link.getDropiLink())) {
+            return;
+        }
+        openShard.add(new Link(link.getDropiLink(), link.getAliExpressLink()));
+        if (openShard.size() >= shardSize) {
+            sealOpenShard();
+            save();
+        }
+    }
+
+    /**
+     * Seals the last partial shard. Once every shard is done or failed the run is finished.
+     */
+    public synchronized void completeCrawl() {
+        sealOpenShard();
+        snapshot.setCrawlComplete(true);
+        logger.info("Crawl complete: {} products in {} shards", knownLinks.size(), snapshot.getShards().size());
+        updateFinished();
+        save();
+    }
+
+    private void sealOpenShard() {
+        if (openShard.isEmpty()) {
+            return;
+        }
+        Shard shard = new Shard();
+        shard.setId(snapshot.getShards().size() + 1);
+        shard.setState(PENDING);
+        shard.setLinks(new ArrayList<>(openShard));
+        snapshot.getShards().add(shard);
+        openShard.clear();
+        notifyAll();
+    }
+
+    public synchronized boolean isCrawlComplete() {
+        return snapshot.isCrawlComplete();
+    }
+
+    public synchronized boolean isFinished() {
+        return snapshot.isFinished();
+    }
+
+    /**
+     * Leases the first pending shard to a worker.
+     *
+     * @return the leased shard, or {@code null} if none is pending right now
+     */
+    public synchronized Shard claim(String worker, Instant now) {
+        expireLeases(now);
+        for (Shard shard : snapshot.getShards()) {
+            if (PENDING.equals(shard.getState())) {
+                shard.setState(LEASED);
+                shard.setWorker(worker);
+                shard.setLease(UUID.randomUUID().toString());
+                shard.setLeaseExpiresAt(now.plus(leaseDuration).toString());
+                shard.setAttempts(shard.getAttempts() + 1);
+                save();
+                logger.info("Shard {} leased to {} (attempt {})", shard.getId(), worker, shard.getAttempts());
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extends a lease.
+     *
+     * @return {@code false} if the lease expired or the shard was handed to another worker
+     */
+    public synchronized boolean renew(int shardId, String lease, Instant now) {
+        expireLeases(now);
+        Shard shard = leased(shardId, lease);
+        if (shard == null) {
+            return false;
+        }
+        shard.setLeaseExpiresAt(now.plus(leaseDuration).toString());
+        save();
+        return true;
+    }
+
+    /**
+     * Marks a leased shard as done, except for the products that failed, which stay in the shard
+     * and are handed out again.
+     *
+     * @param failedDropiLinks the {@code editar/produto/} URLs of the products that were not completed
+     * @return {@code false} if the lease is no longer held
+     */
+    public synchronized boolean acknowledge(int shardId, String lease, Collection<String> failedDropiLinks) {
+        Shard shard = leased(shardId, lease);
+        if (shard == null) {
+            return false;
+        }
+        List<Link> failed = shard.getLinks().stream()
+                .filter(link -> failedDropiLinks.contains(link.getDropiLink()))
+                .toList();
+        if (!failed.isEmpty()) {
+            logger.warn("Shard {} acknowledged by {} with {} of {} products failed", shardId, shard.getWorker(),
+                    failed.size(), shard.getLinks().size());
+            shard.setLinks(new ArrayList<>(failed));
+            shard.setLastError(failed.size() + " products failed");
+            returnToQueue(shard);
+            updateFinished();
+            save();
+            return true;
+        }
+        shard.setState(DONE);
+        shard.setLease(null);
+        shard.setLeaseExpiresAt(null);
+        logger.info("Shard {} done by {} ({} of {} done)", shardId, shard.getWorker(), count(DONE),
+                snapshot.getShards().size());
+        updateFinished();
+        save();
+        return true;
+    }
+
+    /**
+     * Returns a leased shard after the worker failed to process it.
+     *
+     * @return {@code false} if the lease is no longer held
+     */
+    public synchronized boolean release(int shardId, String lease, String error) {
+        Shard shard = leased(shardId, lease);
+        if (shard == null) {
+            return false;
+        }
+        logger.warn("Shard {} released by {}: {}", shardId, shard.getWorker(), error);
+        shard.setLastError(error);
+        returnToQueue(shard);
+        updateFinished();
+        save();
+        return true;
+    }
+
+    /**
+     * Returns the shards whose lease expired to the queue.
+     */
+    public synchronized void expireLeases(Instant now) {
+        boolean changed = false;
+        for (Shard shard : snapshot.getShards()) {
+            if (LEASED.equals(shard.getState()) && Instant.parse(shard.getLeaseExpiresAt()).isBefore(now)) {
+                logger.warn("Lease of shard {} held by {} expired", shard.getId(), shard.getWorker());
+                shard.setLastError("lease expired");
+                returnToQueue(shard);
+                changed = true;
+            }
+        }
+        if (changed) {
+            updateFinished();
+            save();
+        }
+    }
+
+    private void returnToQueue(Shard shard) {
+        shard.setLease(null);
+        shard.setLeaseExpiresAt(null);
+        if (shard.getAttempts() >= maxAttempts) {
+            logger.error("Shard {} failed after {} attempts", shard.getId(), shard.getAttempts());
+            shard.setState(FAILED);
+        } else {
+            shard.setState(PENDING);
+        }
+        notifyAll();
+    }
+
+    private Shard leased(int shardId, String lease) {
+        if (shardId < 1 || shardId > snapshot.getShards().size()) {
+            return null;
+        }
+        Shard shard = snapshot.getShards().get(shardId - 1);
+        return LEASED.equals(shard.getState()) && shard.getLease().equals(lease) ? shard : null;
+    }
+
+    private void updateFinished() {
+        boolean finished = snapshot.isCrawlComplete() && snapshot.getShards().stream()
+                .allMatch(shard -> DONE.equals(shard.getState()) || FAILED.equals(shard.getState()));
+        if (finished && !snapshot.isFinished()) {
+            snapshot.setFinished(true);
+            logger.info("All shards finished: {} done, {} failed", count(DONE), count(FAILED));
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until every shard is done or failed, expiring leases while waiting.
+     */
+    public synchronized void awaitFinished(Duration checkInterval) throws InterruptedException {
+        while (!snapshot.isFinished()) {
+            wait(checkInterval.toMillis());
+            expireLeases(Instant.now());
+        }
+    }
+
+    public synchronized int count(String state) {
+        return (int) snapshot.getShards().stream().filter(shard -> state.equals(shard.getState())).count();
+    }
+
+    /**
+     * @return shard counts by state and the shards currently leased, for {@code GET /status}
+     */
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("crawlComplete", snapshot.isCrawlComplete());
+        status.put("finished", snapshot.isFinished());
+        status.put("products", knownLinks.size());
+        for (String state : List.of(PENDING, LEASED, DONE, FAILED)) {
+            status.put(state.toLowerCase(), count(state));
+        }
+        List<Map<String, Object>> leases = new ArrayList<>();
+        for (Shard shard : snapshot.getShards()) {
+            if (LEASED.equals(shard.getState())) {
+                Map<String, Object> lease = new LinkedHashMap<>();
+                lease.put("shard", shard.getId());
+                lease.put("worker", shard.getWorker());
+                lease.put("expiresAt", shard.getLeaseExpiresAt());
+                leases.add(lease);
+            }
+        }
+        status.put("leases", leases);
+        return status;
+    }
+
+    private void save() {
+        try {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), snapshot);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write shard state {}: {}", file, e.getMessage());
+        }
+    }
+
+    public static class Snapshot {
+        private boolean crawlComplete;
+        private boolean finished;
+        private List<Shard> shards = new ArrayList<>();
+
+        public boolean isCrawlComplete() {
+            return crawlComplete;
+        }
+
+        public void setCrawlComplete(boolean crawlComplete) {
+            this.crawlComplete = crawlComplete;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public void setFinished(boolean finished) {
+            this.finished = finished;
+        }
+
+        public List<Shard> getShards() {
+            return shards;
+        }
+
+        public void setShards(List<Shard> shards) {
+            this.shards = new ArrayList<>(shards);
+        }
+    }
+
+    public static class Shard {
+        private int id;
+        private String state;
+        private String worker;
+        private String lease;
+        private String leaseExpiresAt;
+        private int attempts;
+        private String lastError;
+        private List<Link> links = new ArrayList<>();
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public void setState(String state) {
+            this.state = state;
+        }
+
+        public String getWorker() {
+            return worker;
+        }
+
+        public void setWorker(String worker) {
+            this.worker = worker;
+        }
+
+        public String getLease() {
+            return lease;
+        }
+
+        public void setLease(String lease) {
+            this.lease = lease;
+        }
+
+        public String getLeaseExpiresAt() {
+            return leaseExpiresAt;
+        }
+
+        public void setLeaseExpiresAt(String leaseExpiresAt) {
+            this.leaseExpiresAt = leaseExpiresAt;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public void setAttempts(int attempts) {
+            this.attempts = attempts;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        public void setLastError(String lastError) {
+            this.lastError = lastError;
+        }
+
+        public List<Link> getLinks() {
+            return links;
+        }
+
+        public void setLinks(List<Link> links) {
+            this.links = links;
+        }
+    }
+
+    public static class Link {
+        private String dropiLink;
+        private String aliExpressLink;
+
+        public Link() {
+        }
+
+        public Link(String dropiLink, String aliExpressLink) {
+            this.dropiLink = dropiLink;
+            this.aliExpressLink = aliExpressLink;
+        }
+
+        public String getDropiLink() {
+            return dropiLink;
+        }
+
+        public void setDropiLink(String dropiLink) {
+            this.dropiLink = dropiLink;
+        }
+
+        public String getAliExpressLink() {
+            return aliExpressLink;
+        }
+
+        public void setAliExpressLink(String aliExpressLink) {
+            this.aliExpressLink = aliExpressLink;
+        }
+
+        public ProductLinks toProductLinks() {
+            return new ProductLinks(dropiLink, aliExpressLink);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.reconnect.shard;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reconnect.model.ProductLinks;
+import com.reconnect.service.PlaywrightService;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worker side of a sharded run: claims shards from a {@link CoordinatorServer}, updates their
+ * products with its own {@link PlaywrightService}, and acknowledges them, until the coordinator
+ * reports the run as finished.
+ *
+ * <p>While a shard is processed, a virtual thread renews its lease at a third of the lease
+ * duration. A shard whose processing throws is released so another worker can try it, and the
+ * products that failed or were left without every price are listed in the acknowledgement so the
+ * coordinator hands them out again. If the coordinator cannot be reached the worker keeps
+ * retrying for {@code unreachableTimeout} before giving up, which also covers workers started
+ * before their coordinator.
+ */
+public class ShardWorker {
+    private static final Logger logger = LogManager.getLogger(ShardWorker.class);
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final Duration IDLE_POLL_INTERVAL = Duration.ofSeconds(2);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final String coordinatorUrl;
+    private final String workerId;
+    private final Duration leaseDuration;
+    private final Duration unreachableTimeout;
+    private final OkHttpClient httpClient = new OkHttpClient();
+
+    public ShardWorker(String coordinatorUrl, String workerId, Duration leaseDuration, Duration unreachableTimeout) {
+        this.coordinatorUrl = coordinatorUrl;
+        this.workerId = workerId;
+        this.leaseDuration = leaseDuration;
+        this.unreachableTimeout = unreachableTimeout;
+    }
+
+    /**
+     * Processes shards until the run is finished. Must be called on the thread that created the
+     * service.
+     *
+     * @return the number of shards this worker completed without failed products
+     */
+    public int run(PlaywrightService service) throws InterruptedException {
+        logger.info("Worker {} claiming shards from {}", workerId, coordinatorUrl);
+        int acknowledged = 0;
+        long unreachableSince = 0;
+        while (true) {
+            ClaimedShard shard;
+            try {
+                shard = claim();
+                unreachableSince = 0;
+            } catch (IOException e) {
+                if (unreachableSince == 0) {
+                    unreachableSince = System.nanoTime();
+                } else if (System.nanoTime() - unreachableSince > unreachableTimeout.toNanos()) {
+                    throw new IllegalStateException("Coordinator unreachable at " + coordinatorUrl, e);
+                }
+                logger.warn("Could not reach coordinator: {}", e.getMessage());
+                Thread.sleep(IDLE_POLL_INTERVAL.toMillis());
+                continue;
+            }
+
+            if (shard == null) {
+                Thread.sleep(IDLE_POLL_INTERVAL.toMillis());
+            } else if (shard == ClaimedShard.FINISHED) {
+                logger.info("Run finished, worker {} acknowledged {} shards", workerId, acknowledged);
+                return acknowledged;
+            } else if (process(service, shard)) {
+                acknowledged++;
+            }
+        }
+    }
+
+    private boolean process(PlaywrightService service, ClaimedShard shard) {
+        logger.info("Processing shard {} with {} products", shard.id(), shard.links().size());
+        Thread renewer = Thread.ofVirtual().name("lease-renewer-" + shard.id()).start(() -> renewUntilInterrupted(shard));
+        String error = null;
+        List<String> failed = List.of();
+        try {
+            failed = service.processProductLinks(shard.links().stream().map(ShardStore.Link::toProductLinks).toList())
+                    .stream().map(ProductLinks::getDropiLink).toList();
+        } catch (RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+            logger.error("Shard {} failed: {}", shard.id(), error, e);
+        } finally {
+            renewer.interrupt();
+        }
+
+        String action = error == null ? "ack" : "release";
+        try {
+            boolean held = post("/shards/" + shard.id() + "/" + action, error == null
+                    ? Map.of("lease", shard.lease(), "failed", failed)
+                    : Map.of("lease", shard.lease(), "error", error));
+            if (!held) {
+                logger.warn("Lease of shard {} was lost before {}; another worker may repeat it", shard.id(), action);
+            } else if (!failed.isEmpty()) {
+                logger.warn("Returned {} failed products of shard {} to the coordinator", failed.size(), shard.id());
+            }
+            return held && error == null && failed.isEmpty();
+        } catch (IOException e) {
+            logger.warn("Could not {} shard {}: {}; its lease will expire", action, shard.id(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void renewUntilInterrupted(ClaimedShard shard) {
+        long interval = Math.max(1000, leaseDuration.toMillis() / 3);
+        try {
+            while (true) {
+                Thread.sleep(interval);
+                try {
+                    if (!post("/shards/" + shard.id() + "/renew", Map.of("lease", shard.lease()))) {
+                        logger.warn("Lease of shard {} was lost", shard.id());
+                        return;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Could not renew lease of shard {}: {}", shard.id(), e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            // processing finished
+        }
+    }
+
+    /**
+     * @return the claimed shard, {@code null} if none is available yet, or {@link ClaimedShard#FINISHED}
+     */
+    private ClaimedShard claim() throws IOException {
+        try (Response response = httpClient.newCall(request("/shards/claim", Map.of("worker", workerId))).execute()) {
+            return switch (response.code()) {
+                case 200 -> objectMapper.readValue(response.body().byteStream(), ClaimedShard.class);
+                case 204 -> null;
+                case 410 -> ClaimedShard.FINISHED;
+                default -> throw new IOException("Unexpected claim response " + response.code());
+            };
+        }
+    }
+
+    /**
+     * @return {@code false} if the coordinator answered that the lease is no longer held
+     */
+    private boolean post(String path, Map<String, ?> body) throws IOException {
+        try (Response response = httpClient.newCall(request(path, body)).execute()) {
+            if (response.code() == 409) {
+                return false;
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected response " + response.code() + " for " + path);
+            }
+            return true;
+        }
+    }
+
+    private Request request(String path, Map<String, ?> body) throws IOException {
+        return new Request.Builder()
+                .url(coordinatorUrl + path)
+                .post(RequestBody.create(objectMapper.writeValueAsBytes(body), JSON))
+                .build();
+    }
+
+    record ClaimedShard(int id, String lease, List<ShardStore.Link> links) {
+        static final ClaimedShard FINISHED = new ClaimedShard(0, null, List.of());
+    }
+}
@@ -0,0 +1,432 @@
+package com.reconnect.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the parts of the Dropi app the automation uses, plus the price service, so
+ * throughput and soak tests can run against thousands of synthetic products without touching
+ * the live app:
+ * <ul>
+ *     <li>{@code GET /produtos?pg=N}: the listing, {@value #PAGE_SIZE} rows per page, some tagged
+ *     as removed by the supplier, and the empty-catalog message after the last page;</li>
+ *     <li>{@code GET /editar/produto/<id>}: the editor with its prices tab, one
+ *     {@code tr.quantidade-variacoes} row per variation, the {@code #lucro-<row>} calculator and
+ *     the save confirmation modal;</li>
+ *     <li>{@code POST /editar/produto/<id>}: the save, which stores the submitted prices and
+ *     redirects to {@code /produtos};</li>
+ *     <li>{@code POST /api/products/find}: the price service, answering like {@link PriceApiStubServer};</li>
+ *     <li>{@code GET /sim/stats}: request counters and products saved per minute.</li>
+ * </ul>
+ * Every page and API response waits for a latency drawn between half and one and a half times the
+ * configured value, and fails with HTTP 503 at the configured rate. Saved prices are kept in
+ * memory, so a second run over the same simulator sees the products as unchanged.
+ *
+ * <p>Usage: {@code DropiSimulator [port] [products] [pageLatencyMs] [apiLatencyMs] [failureRate]},
+ * then run the application with {@code DROPI_URL} and {@code API_URL} set to the printed base URL.
+ */
+public class DropiSimulator implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(DropiSimulator.class);
+
+    static {
+        // The JDK server writes the headers and the body of a response separately; with Nagle's
+        // algorithm on, the body then waits ~40 ms for the client's delayed ACK on every request.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    static final int PAGE_SIZE = 50;
+    private static final int REMOVED_EVERY = 41;
+    private static final String REMOVED_TAG_TITLE =
+            "O anúncio deste produto no Fornecedor foi removido, altere o produto para não exibir em sua loja";
+    private static final String EDITOR_PATH = "/editar/produto/";
+    private static final int FIRST_PRODUCT_ID = 100000;
+
+    /**
+     * Tabs, calculator and save modal. The calculator and the modal open after a short delay, like
+     * the animations of the real app, so the condition waits have something to wait for.
+     */
+    private static final String EDITOR_SCRIPT = """
+            const number = v => parseFloat(String(v).replace('.', '').replace(',', '.')) || 0;
+            const money = v => v.toFixed(2).replace('.', ',');
+            let currentRow = null;
+            document.getElementById('pills-prices-tab').addEventListener('click', e => {
+              e.preventDefault();
+              document.getElementById('geral').style.display = 'none';
+              setTimeout(() => document.getElementById('precos').classList.add('active'), 150);
+            });
+            document.querySelectorAll('button.lucro').forEach(b => b.addEventListener('click', () => {
+              currentRow = b.dataset.row;
+              const cost = document.getElementById('preco-original-modificado-' + currentRow).value;
+              setTimeout(() => {
+                document.querySelector('input.valor-produto-aliexpress').value = cost;
+                document.getElementById('calculadora').classList.add('show');
+              }, 100);
+            }));
+            document.getElementById('aplicarPrecosCalculadora').addEventListener('click', () => {
+              const cost = number(document.querySelector('input.valor-produto-aliexpress').value);
+              const marketing = number(document.querySelector('input.porcentagem-marketing').value) / 100;
+              const markup = number(document.querySelector('input.base-markup').value) / 100;
+              const promo = number(document.querySelector('input.base-markup-promocional').value) / 100;
+              document.getElementById('preco-venda-' + currentRow).value = money(cost * (1 + markup) * (1 + marketing));
+              document.getElementById('preco-promocional-' + currentRow).value = money(cost * (1 + promo) * (1 + marketing));
+              document.getElementById('calculadora').classList.remove('show');
+            });
+            document.querySelector("button[data-target='#atualizarProdutoModal']").addEventListener('click', () => {
+              setTimeout(() => document.getElementById('atualizarProdutoModal').classList.add('show'), 200);
+            });
+            """;
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int productCount;
+    private final long pageLatencyMs;
+    private final long apiLatencyMs;
+    private final double failureRate;
+    private final Map<String, String> savedPrices = new ConcurrentHashMap<>();
+    private final AtomicLong listingPages = new AtomicLong();
+    private final AtomicLong editorLoads = new AtomicLong();
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong apiCalls = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicLong firstSaveAt = new AtomicLong();
+    private final AtomicLong lastSaveAt = new AtomicLong();
+
+    public DropiSimulator(int port, int productCount, long pageLatencyMs, long apiLatencyMs, double failureRate)
+            throws IOException {
+        this.productCount = productCount;
+        this.pageLatencyMs = pageLatencyMs;
+        this.apiLatencyMs = apiLatencyMs;
+        this.failureRate = failureRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/produtos", this::handleListing);
+        this.server.createContext(EDITOR_PATH, this::handleEditor);
+        this.server.createContext("/api/products/find", this::handleFind);
+        this.server.createContext("/sim/stats", this::handleStats);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.start();
+        logger.info("Dropi simulator listening on {} with {} products, {} ms page latency, {} ms API latency, "
+                + "{}% failures", getBaseUrl(), productCount, pageLatencyMs, apiLatencyMs, failureRate * 100);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8090;
+        int products = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long pageLatencyMs = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        long apiLatencyMs = args.length > 3 ? Long.parseLong(args[3]) : 100;
+        double failureRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        DropiSimulator simulator = new DropiSimulator(port, products, pageLatencyMs, apiLatencyMs, failureRate);
+        logger.info("Run the application with DROPI_URL={} API_URL={}", simulator.getBaseUrl(), simulator.getBaseUrl());
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> logger.info(simulator.stats()), 30, 30, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            reporter.shutdownNow();
+            logger.info(simulator.stats());
+            simulator.close();
+        }));
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getSaves() {
+        return saves.get();
+    }
+
+    /**
+     * @return products saved per minute between the first and the last save
+     */
+    public double getProductsPerMinute() {
+        long first = firstSaveAt.get();
+        long elapsed = lastSaveAt.get() - first;
+        return first == 0 || elapsed <= 0 ? 0 : saves.get() * 60_000.0 / elapsed;
+    }
+
+    String stats() {
+        return String.format(Locale.ROOT, "Simulator: %d listing pages, %d editor loads, %d saves, %d API calls, "
+                        + "%d injected failures, %.1f products/min",
+                listingPages.get(), editorLoads.get(), saves.get(), apiCalls.get(), injectedFailures.get(),
+                getProductsPerMinute());
+    }
+
+    private void handleListing(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (simulateUpstream(exchange, pageLatencyMs)) {
+                return;
+            }
+            listingPages.incrementAndGet();
+            int pageNumber = Math.max(1, parseInt(queryParameters(exchange).get("pg"), 1));
+            sendHtml(exchange, 200, listingPage(pageNumber));
+        }
+    }
+
+    private void handleEditor(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int id = parseInt(exchange.getRequestURI().getPath().substring(EDITOR_PATH.length()), -1);
+            int index = id - FIRST_PRODUCT_ID;
+            if (index < 0 || index >= productCount) {
+                sendHtml(exchange, 404, "<html><body>Produto não encontrado</body></html>");
+                return;
+            }
+            if (simulateUpstream(exchange, pageLatencyMs)) {
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                editorLoads.incrementAndGet();
+                sendHtml(exchange, 200, editorPage(index));
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                save(exchange, index);
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void save(HttpExchange exchange, int index) throws IOException {
+        Map<String, String> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        if (!tokenFor(index).equals(form.get("_token"))) {
+            sendHtml(exchange, 419, "<html><body>Página expirada</body></html>");
+            return;
+        }
+        List<String> skus = skusFor(index);
+        for (int variation = 0; variation < skus.size(); variation++) {
+            String price = form.get("variacoes[" + rowId(index, variation) + "][preco_original]");
+            if (price != null) {
+                savedPrices.put(skus.get(variation), price);
+            }
+        }
+        long now = System.currentTimeMillis();
+        firstSaveAt.compareAndSet(0, now);
+        lastSaveAt.set(now);
+        saves.incrementAndGet();
+
+        exchange.getResponseHeaders().add("Location", "/produtos");
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private void handleFind(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (simulateUpstream(exchange, apiLatencyMs)) {
+                return;
+            }
+            apiCalls.incrementAndGet();
+            Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            byte[] body = objectMapper.writeValueAsBytes(
+                    PriceApiStubServer.productFor(String.valueOf(request.get("id")), request.get("link")));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = (stats() + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Waits for the simulated latency and decides whether to inject a failure.
+     *
+     * @return {@code true} if a 503 response was sent and the request must not be handled
+     */
+    private boolean simulateUpstream(HttpExchange exchange, long latencyMs) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs / 2 + random.nextLong(latencyMs + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            injectedFailures.incrementAndGet();
+            sendHtml(exchange, 503, "<html><body>Serviço temporariamente indisponível</body></html>");
+            return true;
+        }
+        return false;
+    }
+
+    private String listingPage(int pageNumber) {
+        int from = (pageNumber - 1) * PAGE_SIZE;
+        int to = Math.min(productCount, from + PAGE_SIZE);
+        StringBuilder html = new StringBuilder(PAGE_SIZE * 1200);
+        html.append("<!DOCTYPE html><html lang=\"pt-BR\"><head><meta charset=\"UTF-8\"><title>Produtos - Dropi</title>")
+                .append("</head><body><div class=\"dropi--content\">");
+        if (from >= to) {
+            html.append("<div class=\"dropi--empty\"><span>Ops, você ainda não tem nenhum produto importado</span></div>");
+        } else {
+            html.append("<table class=\"dropi--table\"><tbody>");
+            for (int index = from; index < to; index++) {
+                String editorUrl = getBaseUrl() + EDITOR_PATH + productId(index);
+                html.append("<tr class=\"dropi--table-row-product\" data-id=\"").append(productId(index)).append("\">")
+                        .append("<td class=\"dropi--table-cell\"><a class=\"dropi--product-name\" href=\"")
+                        .append(editorUrl).append("\">Produto simulado ").append(index + 1).append("</a></td>")
+                        .append("<td class=\"dropi--table-cell\"><a class=\"dropi--supplier-link\" href=\"")
+                        .append(aliExpressLinkFor(index)).append("\" target=\"_blank\">AliExpress</a></td>")
+                        .append("<td class=\"dropi--table-cell\">");
+                if (isRemoved(index)) {
+                    html.append("<span class=\"dropi--tag dropi--tag-red\" data-original-title=\"")
+                            .append(REMOVED_TAG_TITLE).append("\">Removido</span>");
+                } else {
+                    html.append("<span class=\"dropi--tag dropi--tag-green\">Ativo</span>");
+                }
+                html.append("</td><td class=\"dropi--table-cell\"><a class=\"dropi--btn dropi--btn-icon\" href=\"")
+                        .append(editorUrl).append("\" title=\"Editar\">Editar</a></td></tr>");
+            }
+            html.append("</tbody></table>");
+        }
+        return html.append("</div></body></html>").toString();
+    }
+
+    private String editorPage(int index) {
+        int id = productId(index);
+        StringBuilder html = new StringBuilder(8192);
+        html.append("<!DOCTYPE html><html lang=\"pt-BR\"><head><meta charset=\"UTF-8\"><title>Editar produto - Dropi</title>")
+                .append("<style>.modal{display:none}.modal.show{display:block}#precos{display:none}#precos.active{display:block}</style>")
+                .append("</head><body>")
+                .append("<form id=\"form-produto\" method=\"post\" action=\"").append(EDITOR_PATH).append(id).append("\">")
+                .append("<input type=\"hidden\" name=\"_token\" value=\"").append(tokenFor(index)).append("\">")
+                .append("<ul class=\"nav nav-pills\"><li><a id=\"pills-general-tab\" data-toggle=\"pill\" data-target=\"#geral\" href=\"#\">Geral</a></li>")
+                .append("<li><a id=\"pills-prices-tab\" data-toggle=\"pill\" data-target=\"#precos\" href=\"#\">Preços</a></li></ul>")
+                .append("<div id=\"geral\"><h1>Produto simulado ").append(index + 1).append("</h1></div>")
+                .append("<div id=\"precos\"><table><tbody>");
+
+        List<String> skus = skusFor(index);
+        for (int variation = 0; variation < skus.size(); variation++) {
+            String row = rowId(index, variation);
+            String sku = skus.get(variation);
+            html.append("<tr class=\"quantidade-variacoes\">")
+                    .append("<td><input type=\"text\" class=\"sku-inputs-verify\" id=\"sku-custom-").append(row)
+                    .append("\" name=\"variacoes[").append(row).append("][sku]\" value=\"").append(sku).append("\"></td>")
+                    .append(priceInput("preco-original-modificado-", "preco_original", row, savedPrices.getOrDefault(sku, "")))
+                    .append(priceInput("preco-venda-", "preco_venda", row, ""))
+                    .append(priceInput("preco-promocional-", "preco_promocional", row, ""))
+                    .append("<td><button type=\"button\" class=\"lucro\" id=\"lucro-").append(row)
+                    .append("\" data-row=\"").append(row).append("\">Calcular lucro</button></td></tr>");
+        }
+
+        html.append("</tbody></table>")
+                .append("<button type=\"button\" class=\"dropi--btn dropi--btn-primary\" data-toggle=\"modal\" ")
+                .append("data-target=\"#atualizarProdutoModal\">Salvar</button></div>")
+                .append("<div class=\"modal\" id=\"calculadora\">")
+                .append("<input type=\"text\" class=\"valor-produto-aliexpress\">")
+                .append("<input type=\"text\" class=\"porcentagem-marketing\">")
+                .append("<input type=\"text\" class=\"base-markup\">")
+                .append("<input type=\"text\" class=\"base-markup-promocional\">")
+                .append("<button type=\"button\" id=\"aplicarPrecosCalculadora\">Aplicar</button></div>")
+                .append("<div class=\"modal\" id=\"atualizarProdutoModal\"><p>Deseja atualizar o produto?</p>")
+                .append("<button type=\"submit\" class=\"salvarProduto\">Atualizar</button></div>")
+                .append("</form>")
+                .append("<script>").append(EDITOR_SCRIPT).append("</script>")
+                .append("</body></html>");
+        return html.toString();
+    }
+
+    private static String priceInput(String idPrefix, String field, String row, String value) {
+        return "<td><input type=\"text\" id=\"" + idPrefix + row + "\" name=\"variacoes[" + row + "][" + field
+                + "]\" value=\"" + value + "\"></td>";
+    }
+
+    private static int productId(int index) {
+        return FIRST_PRODUCT_ID + index;
+    }
+
+    private static String rowId(int index, int variation) {
+        return String.valueOf(productId(index) * 10L + variation);
+    }
+
+    private static boolean isRemoved(int index) {
+        return index % REMOVED_EVERY == REMOVED_EVERY - 1;
+    }
+
+    private static String aliExpressLinkFor(int index) {
+        return "https://pt.aliexpress.com/item/" + (1005004000000000L + productId(index)) + ".html";
+    }
+
+    private static List<String> skusFor(int index) {
+        int variations = 1 + index % 6;
+        List<String> skus = new ArrayList<>(variations);
+        for (int variation = 0; variation < variations; variation++) {
+            skus.add("SIM" + productId(index) + "-" + (variation + 1));
+        }
+        return skus;
+    }
+
+    private static String tokenFor(int index) {
+        return Integer.toHexString(("sim-" + index).hashCode());
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        return query == null ? Map.of() : parseForm(query);
+    }
+
+    private static Map<String, String> parseForm(String encoded) {
+        Map<String, String> values = new HashMap<>();
+        for (String pair : encoded.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode(separator >= 0 ? pair.substring(0, separator) : pair, StandardCharsets.UTF_8);
+            String value = separator >= 0 ? URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8) : "";
+            values.put(name, value);
+        }
+        return values;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static void sendHtml(HttpExchange exchange, int status, String html) throws IOException {
+        byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
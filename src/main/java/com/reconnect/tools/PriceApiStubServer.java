@@ -0,0 +1,92 @@
+package com.reconnect.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for the price service {@code /api/products/find} endpoint. Every request is
+ * answered after a fixed latency with a price derived from the SKU, so results are repeatable.
+ */
+public class PriceApiStubServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(PriceApiStubServer.class);
+
+    static {
+        // The JDK server writes the headers and the body of a response separately; with Nagle's
+        // algorithm on, the body then waits ~40 ms for the client's delayed ACK on every request.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long latencyMs;
+
+    public PriceApiStubServer(int port, long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/api/products/find", this::handleFind);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+        logger.info("Price API stub listening on {} with {} ms latency", getBaseUrl(), latencyMs);
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handleFind(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            String sku = String.valueOf(request.get("id"));
+            Thread.sleep(latencyMs);
+
+            byte[] body = objectMapper.writeValueAsBytes(productFor(sku, request.get("link")));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The price service response for a SKU, in the shape of {@code ProductResponse}.
+     */
+    static Map<String, Object> productFor(String sku, Object link) {
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("id", sku);
+        product.put("link", link);
+        product.put("price", priceFor(sku));
+        product.put("skuId", sku);
+        product.put("createdAt", Instant.EPOCH.toString());
+        product.put("updatedAt", Instant.now().toString());
+        product.put("uuid", UUID.nameUUIDFromBytes(sku.getBytes(StandardCharsets.UTF_8)).toString());
+        return product;
+    }
+
+    /**
+     * Deterministic price in cents between R$ 10,00 and R$ 700,00.
+     */
+    static long priceFor(String sku) {
+        return 1000 + Math.floorMod(sku.hashCode(), 69000);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
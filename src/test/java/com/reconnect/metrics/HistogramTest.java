@@ -0,0 +1,53 @@
+package com.reconnect.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void interpolatesQuantilesInsideABucket() {
+        Histogram histogram = new Histogram(new double[] {1, 2, 4});
+        for (int i = 0; i < 10; i++) {
+            histogram.observe(0.5);
+            histogram.observe(1.5);
+        }
+
+        assertEquals(20, histogram.getCount());
+        assertEquals(20, histogram.getSum(), 1e-9);
+        assertEquals(0.5, histogram.quantile(0.25), 1e-9);
+        assertEquals(1.0, histogram.quantile(0.5), 1e-9);
+        assertEquals(1.5, histogram.quantile(0.75), 1e-9);
+    }
+
+    @Test
+    void overflowQuantileIsTheHighestBound() {
+        Histogram histogram = new Histogram(new double[] {1, 2});
+        histogram.observe(100);
+
+        assertEquals(2, histogram.quantile(0.99), 1e-9);
+    }
+
+    @Test
+    void writesCumulativeBuckets() {
+        Histogram histogram = new Histogram(new double[] {1, 2});
+        histogram.observe(0.5);
+        histogram.observe(1.5);
+        histogram.observe(3);
+        StringBuilder out = new StringBuilder();
+
+        histogram.writeTo(out, "latency_seconds", "step=\"save\"");
+
+        String text = out.toString();
+        assertTrue(text.contains("latency_seconds_bucket{step=\"save\",le=\"1.0\"} 1\n"), text);
+        assertTrue(text.contains("latency_seconds_bucket{step=\"save\",le=\"+Inf\"} 3\n"), text);
+        assertTrue(text.contains("latency_seconds_count{step=\"save\"} 3\n"), text);
+    }
+
+    @Test
+    void emptyHistogramHasZeroQuantiles() {
+        assertEquals(0, new Histogram(Histogram.DEFAULT_BUCKETS).quantile(0.5));
+    }
+}
@@ -0,0 +1,57 @@
+package com.reconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveThrottleTest {
+
+    @Test
+    void overloadHalvesTheLimitOncePerPause() throws InterruptedException {
+        AdaptiveThrottle throttle = new AdaptiveThrottle("test-overload", 8, 0, 10_000, 10_000);
+        throttle.acquire();
+        throttle.acquire();
+
+        throttle.release(0, true);
+        throttle.release(0, true);
+
+        assertEquals(4, throttle.getLimit());
+    }
+
+    @Test
+    void slowCallLowersTheLimitAndFastCallsRaiseItBack() throws InterruptedException {
+        AdaptiveThrottle throttle = new AdaptiveThrottle("test-slow", 10, 100, 1, 1);
+        throttle.acquire();
+        throttle.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+        assertEquals(9, throttle.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            throttle.acquire();
+            throttle.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+        assertEquals(10, throttle.getLimit());
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToTheMaximum() {
+        AdaptiveThrottle throttle = new AdaptiveThrottle("test-backoff", 1, 0, 100, 1_000);
+
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long delay = Math.min(1_000, 100L << (attempt - 1));
+            long backoff = throttle.backoffMillis(attempt);
+            assertTrue(backoff >= delay / 2 && backoff <= delay, attempt + ": " + backoff);
+        }
+    }
+
+    @Test
+    void recognisesOverloadStatuses() {
+        assertTrue(AdaptiveThrottle.isOverloadStatus(429));
+        assertTrue(AdaptiveThrottle.isOverloadStatus(503));
+        assertFalse(AdaptiveThrottle.isOverloadStatus(500));
+        assertFalse(AdaptiveThrottle.isOverloadStatus(404));
+    }
+}
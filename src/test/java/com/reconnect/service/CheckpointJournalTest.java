@@ -0,0 +1,82 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductLinks;
+import com.reconnect.model.ProductOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointJournalTest {
+    private static final ProductLinks FIRST = new ProductLinks("https://dropi/editar/produto/1", "https://ali/1");
+    private static final ProductLinks SECOND = new ProductLinks("https://dropi/editar/produto/2", "https://ali/2");
+    private static final ProductLinks THIRD = new ProductLinks("https://dropi/editar/produto/3", "https://ali/3");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysLinksOutcomesAndCrawlCompletion() throws IOException {
+        Path file = dir.resolve("journal.tsv");
+        try (CheckpointJournal journal = CheckpointJournal.open(file, false, 1)) {
+            journal.recordLink(FIRST);
+            journal.recordLink(SECOND);
+            journal.recordLink(THIRD);
+            journal.recordCrawlComplete();
+            journal.recordOutcome(FIRST, ProductOutcome.UPDATED);
+            journal.recordOutcome(SECOND, ProductOutcome.PARTIAL);
+            journal.recordOutcome(THIRD, ProductOutcome.UNCHANGED);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, true, 1)) {
+            assertTrue(journal.isCrawlComplete());
+            assertEquals(3, journal.getLinks().size());
+            assertTrue(journal.isCompleted(FIRST));
+            assertFalse(journal.isCompleted(SECOND));
+            assertEquals(List.of(SECOND.getDropiLink()),
+                    journal.getPendingLinks().stream().map(ProductLinks::getDropiLink).toList());
+        }
+    }
+
+    @Test
+    void dropsATornLastRecordAndAppendsOnANewLine() throws IOException {
+        Path file = dir.resolve("journal.tsv");
+        try (CheckpointJournal journal = CheckpointJournal.open(file, false, 1)) {
+            journal.recordLink(FIRST);
+            journal.recordLink(SECOND);
+        }
+        Files.writeString(file, "O\t" + FIRST.getDropiLink() + "\tUPD", StandardOpenOption.APPEND);
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, true, 1)) {
+            assertFalse(journal.isCompleted(FIRST));
+            journal.recordOutcome(SECOND, ProductOutcome.UPDATED);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, true, 1)) {
+            assertEquals(2, journal.getLinks().size());
+            assertTrue(journal.isCompleted(SECOND));
+            assertEquals(List.of(FIRST.getDropiLink()),
+                    journal.getPendingLinks().stream().map(ProductLinks::getDropiLink).toList());
+        }
+    }
+
+    @Test
+    void startsEmptyWithoutResume() throws IOException {
+        Path file = dir.resolve("journal.tsv");
+        try (CheckpointJournal journal = CheckpointJournal.open(file, false, 1)) {
+            journal.recordLink(FIRST);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, false, 1)) {
+            assertTrue(journal.getLinks().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.reconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectSaveClientTest {
+
+    @Test
+    void readsUrlEncodedFieldNames() {
+        assertEquals(Set.of("_token", "preco_original[0]", "flag"),
+                DirectSaveClient.parseFieldNames("_token=abc&preco_original%5B0%5D=25%2C00&flag"));
+    }
+
+    @Test
+    void readsMultipartPartNames() {
+        String body = "--XyZ\r\n"
+                + "Content-Disposition: form-data; name=\"_token\"\r\n\r\n"
+                + "abc\r\n"
+                + "--XyZ\r\n"
+                + "Content-Disposition: form-data; name=\"preco_original[0]\"\r\n\r\n"
+                + "25,00\r\n"
+                + "--XyZ\r\n"
+                + "Content-Disposition: form-data; name=\"imagem\"; filename=\"a.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n"
+                + "\u0089PNG name=\"fake\"\r\n"
+                + "--XyZ--\r\n";
+
+        Set<String> names = DirectSaveClient.parseMultipartFieldNames("multipart/form-data; boundary=XyZ",
+                body.getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals(List.of("_token", "preco_original[0]", "imagem"), List.copyOf(names));
+    }
+
+    @Test
+    void multipartWithoutBoundaryHasNoNames() {
+        assertTrue(DirectSaveClient.parseMultipartFieldNames("multipart/form-data", new byte[0]).isEmpty());
+    }
+}
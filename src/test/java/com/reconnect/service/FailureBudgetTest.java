@@ -0,0 +1,30 @@
+package com.reconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailureBudgetTest {
+
+    @Test
+    void allowsAThirdOfTheProductsToFail() {
+        FailureBudget budget = new FailureBudget(9);
+
+        assertFalse(budget.recordFailure());
+        assertFalse(budget.recordFailure());
+        assertFalse(budget.recordFailure());
+        assertTrue(budget.recordFailure());
+    }
+
+    @Test
+    void growsWithStreamedProducts() {
+        FailureBudget budget = new FailureBudget();
+        budget.recordSubmitted(3);
+        assertFalse(budget.recordFailure());
+        assertTrue(budget.recordFailure());
+
+        budget.recordSubmitted(3);
+        assertFalse(budget.isExceeded());
+    }
+}
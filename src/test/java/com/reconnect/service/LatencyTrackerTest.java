@@ -0,0 +1,33 @@
+package com.reconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyTrackerTest {
+
+    @Test
+    void reportsNothingUntilEnoughSamples() {
+        LatencyTracker tracker = new LatencyTracker(0.9);
+        for (int i = 1; i < 32; i++) {
+            tracker.record(i);
+        }
+
+        assertEquals(0, tracker.getNanos());
+    }
+
+    @Test
+    void reportsThePercentileOfTheWindow() {
+        LatencyTracker tracker = new LatencyTracker(0.9);
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i);
+        }
+        // recomputed at the 96th sample
+        assertEquals(87, tracker.getNanos());
+
+        for (int i = 0; i < 256; i++) {
+            tracker.record(1_000);
+        }
+        assertEquals(1_000, tracker.getNanos());
+    }
+}
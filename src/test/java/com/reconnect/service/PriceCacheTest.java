@@ -0,0 +1,51 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PriceCacheTest {
+    private static final Instant NOW = Instant.parse("2024-01-10T00:00:00Z");
+
+    private static ProductResponse updatedAt(String updatedAt) {
+        ProductResponse product = new ProductResponse();
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+
+    @Test
+    void ttlIsHalfTheStableAgeWithinTheBounds() {
+        PriceCache cache = new PriceCache(null, 10, Duration.ofHours(1), Duration.ofHours(24));
+
+        assertEquals(Duration.ofHours(5), cache.ttlFor(updatedAt("2024-01-09T14:00:00Z"), NOW));
+        assertEquals(Duration.ofHours(1), cache.ttlFor(updatedAt("2024-01-09T23:30:00Z"), NOW));
+        assertEquals(Duration.ofHours(24), cache.ttlFor(updatedAt("2024-01-01T00:00:00Z"), NOW));
+        assertEquals(Duration.ofHours(1), cache.ttlFor(updatedAt("yesterday"), NOW));
+    }
+
+    @Test
+    void maximumWinsOverMinimum() {
+        PriceCache cache = new PriceCache(null, 10, Duration.ofHours(1), Duration.ofMinutes(10));
+
+        assertEquals(Duration.ofMinutes(10), cache.ttlFor(updatedAt("2024-01-09T23:59:00Z"), NOW));
+        assertEquals(Duration.ofMinutes(10), cache.ttlFor(updatedAt(null), NOW));
+    }
+
+    @Test
+    void returnsFreshEntriesOnly() {
+        PriceCache cache = new PriceCache(null, 10, Duration.ofHours(1), Duration.ZERO);
+        ProductResponse product = updatedAt(null);
+        cache.put("sku", "link", product);
+        assertNull(cache.get("sku", "link"));
+
+        PriceCache fresh = new PriceCache(null, 10, Duration.ofHours(1), Duration.ofHours(24));
+        fresh.put("sku", "link", product);
+        assertSame(product, fresh.get("sku", "link"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductLinks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceChangeCommitTest {
+
+    @TempDir
+    Path dir;
+
+    private PriceChangeFeed feed() throws IOException {
+        Path file = dir.resolve("changes.ndjson");
+        Files.writeString(file, "{\"skuId\":\"a\",\"price\":100}\n{\"skuId\":\"b\",\"price\":200}\n");
+        return new PriceChangeFeed(file, null, dir.resolve("changes.cursor"));
+    }
+
+    @Test
+    void keepsTheCursorWhenAProductFailed() throws IOException {
+        PriceChangeFeed feed = feed();
+        PriceChangeFeed.Batch batch = feed.poll();
+        List<ProductLinks> unfinished = List.of(new ProductLinks("https://dropi/editar/produto/2", "https://ali/b"));
+
+        assertFalse(PlaywrightService.commitIfFinished(feed, batch, unfinished));
+
+        assertNull(feed.getCursor());
+        assertFalse(Files.exists(dir.resolve("changes.cursor")));
+        assertEquals(2, feed.poll().changes().size());
+    }
+
+    @Test
+    void movesTheCursorWhenEveryProductWasUpdated() throws IOException {
+        PriceChangeFeed feed = feed();
+        PriceChangeFeed.Batch batch = feed.poll();
+
+        assertTrue(PlaywrightService.commitIfFinished(feed, batch, List.of()));
+
+        assertEquals(batch.nextCursor(), feed.getCursor());
+        assertTrue(feed.poll().changes().isEmpty());
+    }
+}
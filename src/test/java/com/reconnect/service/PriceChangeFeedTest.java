@@ -0,0 +1,111 @@
+package com.reconnect.service;
+
+import com.reconnect.model.ProductResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceChangeFeedTest {
+
+    @TempDir
+    Path dir;
+
+    private static String change(String sku, int price) {
+        return "{\"skuId\":\"" + sku + "\",\"price\":" + price + "}\n";
+    }
+
+    private static List<String> skus(PriceChangeFeed.Batch batch) {
+        return batch.changes().stream().map(ProductResponse::getSkuId).toList();
+    }
+
+    @Test
+    void readsCompleteLinesAfterTheCommittedOffset() throws IOException {
+        Path file = dir.resolve("changes.ndjson");
+        Path cursor = dir.resolve("changes.cursor");
+        Files.writeString(file, change("a", 100) + "not json\n" + "{\"skuId\":\"b\"");
+        PriceChangeFeed feed = new PriceChangeFeed(file, null, cursor);
+
+        PriceChangeFeed.Batch first = feed.poll();
+        assertEquals(List.of("a"), skus(first));
+        assertEquals(List.of("a"), skus(feed.poll()));
+
+        feed.commit(first);
+        Files.writeString(file, ",\"price\":200}\n", StandardOpenOption.APPEND);
+
+        PriceChangeFeed.Batch second = new PriceChangeFeed(file, null, cursor).poll();
+        assertEquals(List.of("b"), skus(second));
+        assertEquals(Long.toString(Files.size(file)), second.nextCursor());
+    }
+
+    @Test
+    void readsATruncatedFileFromTheStart() throws IOException {
+        Path file = dir.resolve("changes.ndjson");
+        Files.writeString(file, change("a", 100) + change("b", 200));
+        PriceChangeFeed feed = new PriceChangeFeed(file, null, dir.resolve("changes.cursor"));
+        feed.commit(feed.poll());
+
+        Files.writeString(file, change("c", 300));
+
+        assertEquals(List.of("c"), skus(feed.poll()));
+    }
+
+    @Test
+    void neverComparesAServerCursorWithTimestamps() throws IOException {
+        Deque<String> responses = new ArrayDeque<>(List.of(
+                "{\"changes\": [{\"skuId\": \"a\", \"updatedAt\": \"2024-05-02T10:00:00Z\"}], \"cursor\": \"page-2\"}",
+                "[{\"skuId\": \"b\", \"updatedAt\": \"2024-05-03T10:00:00Z\"},"
+                        + " {\"skuId\": \"c\", \"updatedAt\": \"2024-05-02T12:00:00Z\"}]",
+                "[]"));
+        List<String> since = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/changes", exchange -> {
+            since.add(exchange.getRequestURI().getQuery());
+            byte[] body = responses.removeFirst().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            PriceChangeFeed feed = new PriceChangeFeed(null,
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/changes", dir.resolve("changes.cursor"));
+
+            PriceChangeFeed.Batch first = feed.poll();
+            assertEquals("page-2", first.nextCursor());
+            feed.commit(first);
+
+            PriceChangeFeed.Batch second = feed.poll();
+            assertEquals(List.of("b", "c"), skus(second));
+            assertEquals("2024-05-03T10:00:00Z", second.nextCursor());
+            feed.commit(second);
+
+            assertEquals("2024-05-03T10:00:00Z", feed.poll().nextCursor());
+            assertEquals(Arrays.asList(null, "since=page-2", "since=2024-05-03T10:00:00Z"), since);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void missingFileHasNoChanges() throws IOException {
+        PriceChangeFeed feed = new PriceChangeFeed(dir.resolve("missing.ndjson"), null, dir.resolve("changes.cursor"));
+
+        assertTrue(feed.poll().changes().isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package com.reconnect.service;
+
+import com.reconnect.model.PriceRule;
+import com.reconnect.model.ProductLinks;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PricingRuleEngineTest {
+
+    private static PricingRuleEngine.Tier tier(Double upTo, double markup, double promoMarkup) {
+        PricingRuleEngine.Tier tier = new PricingRuleEngine.Tier();
+        tier.setUpTo(upTo);
+        tier.setMarkupPercent(markup);
+        tier.setPromoMarkupPercent(promoMarkup);
+        return tier;
+    }
+
+    private static PricingRuleEngine.Config config(PricingRuleEngine.Tier... tiers) {
+        PricingRuleEngine.Config config = new PricingRuleEngine.Config();
+        config.setMarketingPercent(2);
+        config.setTiers(List.of(tiers));
+        return config;
+    }
+
+    @Test
+    void bundledRulesSelectTheTierOfAPrice() {
+        PricingRuleEngine engine = PricingRuleEngine.load(null);
+
+        assertEquals("20,00", engine.ruleFor(50).getPromoMarkupPercent());
+        assertEquals("20,00", engine.ruleFor(100).getPromoMarkupPercent());
+        assertEquals("15,00", engine.ruleFor(100.01).getPromoMarkupPercent());
+        assertEquals("20,00", engine.ruleFor(450).getMarkupPercent());
+        assertEquals("15,00", engine.ruleFor(10_000).getMarkupPercent());
+        assertEquals("2,00", engine.ruleFor(10_000).getMarketingPercent());
+    }
+
+    @Test
+    void tiersAreSortedByBound() {
+        PricingRuleEngine engine = PricingRuleEngine.fromConfig(
+                config(tier(null, 10, 5), tier(200.0, 30, 25), tier(100.0, 40, 35)));
+
+        assertEquals("40,00", engine.ruleFor(99).getMarkupPercent());
+        assertEquals("30,00", engine.ruleFor(150).getMarkupPercent());
+        assertEquals("10,00", engine.ruleFor(201).getMarkupPercent());
+    }
+
+    @Test
+    void rejectsInconsistentTiers() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PricingRuleEngine.fromConfig(config(tier(100.0, 10, 5))));
+        assertThrows(IllegalArgumentException.class,
+                () -> PricingRuleEngine.fromConfig(config(tier(100.0, 10, 5), tier(100.0, 20, 5), tier(null, 5, 5))));
+    }
+
+    @Test
+    void productOverrideReplacesTheTable() {
+        PricingRuleEngine.Config config = config(tier(null, 10, 5));
+        PricingRuleEngine.RuleOverride override = new PricingRuleEngine.RuleOverride();
+        override.setProductIds(List.of("42"));
+        override.setTiers(List.of(tier(null, 50, 45)));
+        config.setOverrides(List.of(override));
+        PricingRuleEngine engine = PricingRuleEngine.fromConfig(config);
+
+        assertEquals("50,00", engine.ruleFor(new ProductLinks("https://dropi/editar/produto/42/", "x"), 10).getMarkupPercent());
+        assertEquals("10,00", engine.ruleFor(new ProductLinks("https://dropi/editar/produto/43", "x"), 10).getMarkupPercent());
+    }
+
+    @Test
+    void fingerprintIgnoresOrderButNotValues() {
+        PriceRule low = new PriceRule("2,00", "25,00", "20,00");
+        PriceRule high = new PriceRule("2,00", "15,00", "10,00");
+        Map<String, PriceRule> rules = new LinkedHashMap<>();
+        rules.put("a", low);
+        rules.put("b", high);
+        Map<String, PriceRule> reordered = new LinkedHashMap<>();
+        reordered.put("b", high);
+        reordered.put("a", low);
+
+        assertEquals(PricingRuleEngine.fingerprint(rules), PricingRuleEngine.fingerprint(reordered));
+        assertNotEquals(PricingRuleEngine.fingerprint(rules), PricingRuleEngine.fingerprint(Map.of("a", low, "b", low)));
+    }
+}
@@ -0,0 +1,25 @@
+package com.reconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SamePriceTest {
+
+    @Test
+    void readsBrazilianAndPlainFormats() {
+        assertTrue(PlaywrightService.samePrice("25,00", 25));
+        assertTrue(PlaywrightService.samePrice("1.234,56", 1234.56));
+        assertTrue(PlaywrightService.samePrice("R$ 1.234,56", 1234.56));
+        assertTrue(PlaywrightService.samePrice("25.00", 25));
+    }
+
+    @Test
+    void differentOrUnreadablePricesDoNotMatch() {
+        assertFalse(PlaywrightService.samePrice("25,01", 25));
+        assertFalse(PlaywrightService.samePrice("", 25));
+        assertFalse(PlaywrightService.samePrice(null, 25));
+        assertFalse(PlaywrightService.samePrice("abc", 25));
+    }
+}
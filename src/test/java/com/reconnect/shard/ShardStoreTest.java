@@ -0,0 +1,124 @@
+package com.reconnect.shard;
+
+import com.reconnect.model.ProductLinks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardStoreTest {
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private ShardStore store(int maxAttempts, int products) {
+        ShardStore store = ShardStore.open(dir.resolve("shards.json"), 2, LEASE, maxAttempts);
+        for (int i = 1; i <= products; i++) {
+            store.add(link(i));
+        }
+        store.completeCrawl();
+        return store;
+    }
+
+    private static ProductLinks link(int id) {
+        return new ProductLinks("https://app.dropi.com.br/editar/produto/" + id, "https://aliexpress.com/item/" + id);
+    }
+
+    @Test
+    void splitsLinksIntoShardsAndIgnoresDuplicates() {
+        ShardStore store = ShardStore.open(dir.resolve("shards.json"), 2, LEASE, 3);
+        store.add(link(1));
+        store.add(link(2));
+        store.add(link(1));
+        store.add(link(3));
+        store.completeCrawl();
+
+        assertEquals(2, store.count(ShardStore.PENDING));
+        assertEquals(3, store.status().get("products"));
+    }
+
+    @Test
+    void leasedShardIsNotClaimedTwice() {
+        ShardStore store = store(3, 2);
+
+        assertNotNull(store.claim("a", NOW));
+        assertNull(store.claim("b", NOW));
+    }
+
+    @Test
+    void expiredLeaseReturnsShardToAnotherWorker() {
+        ShardStore store = store(3, 2);
+        ShardStore.Shard first = store.claim("a", NOW);
+        String lease = first.getLease();
+
+        ShardStore.Shard second = store.claim("b", NOW.plus(LEASE).plusSeconds(1));
+
+        assertNotNull(second);
+        assertEquals(first.getId(), second.getId());
+        assertEquals(2, second.getAttempts());
+        assertFalse(store.acknowledge(second.getId(), lease, Set.of()));
+        assertTrue(store.acknowledge(second.getId(), second.getLease(), Set.of()));
+        assertTrue(store.isFinished());
+    }
+
+    @Test
+    void renewedLeaseDoesNotExpire() {
+        ShardStore store = store(3, 2);
+        ShardStore.Shard shard = store.claim("a", NOW);
+
+        assertTrue(store.renew(shard.getId(), shard.getLease(), NOW.plus(LEASE).minusSeconds(1)));
+        assertNull(store.claim("b", NOW.plus(LEASE).plusSeconds(1)));
+    }
+
+    @Test
+    void failedProductsAreHandedOutAgain() {
+        ShardStore store = store(3, 2);
+        ShardStore.Shard shard = store.claim("a", NOW);
+
+        assertTrue(store.acknowledge(shard.getId(), shard.getLease(), Set.of(link(2).getDropiLink())));
+
+        ShardStore.Shard retry = store.claim("b", NOW);
+        assertNotNull(retry);
+        assertEquals(List.of(link(2).getDropiLink()),
+                retry.getLinks().stream().map(ShardStore.Link::getDropiLink).toList());
+        assertFalse(store.isFinished());
+    }
+
+    @Test
+    void shardFailsAfterMaxAttempts() {
+        ShardStore store = store(2, 2);
+        ShardStore.Shard shard = store.claim("a", NOW);
+        store.release(shard.getId(), shard.getLease(), "boom");
+        shard = store.claim("a", NOW);
+        store.release(shard.getId(), shard.getLease(), "boom");
+
+        assertEquals(1, store.count(ShardStore.FAILED));
+        assertNull(store.claim("a", NOW));
+        assertTrue(store.isFinished());
+    }
+
+    @Test
+    void unfinishedRunIsResumed() {
+        ShardStore store = store(3, 4);
+        ShardStore.Shard shard = store.claim("a", NOW);
+        store.acknowledge(shard.getId(), shard.getLease(), Set.of());
+
+        ShardStore resumed = ShardStore.open(dir.resolve("shards.json"), 2, LEASE, 3);
+
+        assertEquals(1, resumed.count(ShardStore.DONE));
+        assertEquals(1, resumed.count(ShardStore.PENDING));
+        assertTrue(resumed.isCrawlComplete());
+    }
+}